@@ -0,0 +1,288 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Lookup tables for a single-byte encoding, built once per encoding 
+ * and shared.  They let the types decode and encode bytes without 
+ * going through a Charset for every field.
+ * 
+ * <p>Multi-byte encodings get an instance without tables, 
+ * {@link #isSingleByte()} returns false for those and callers have 
+ * to use the Charset instead.
+ */
+public final class CodePage {
+    
+    /** the zone of a byte that is a plain digit */
+    public static final int DIGIT = 0x00;
+    /** the zone of a byte that is a digit overpunched with a positive sign */
+    public static final int POSITIVE = 0x10;
+    /** the zone of a byte that is a digit overpunched with a negative sign */
+    public static final int NEGATIVE = 0x20;
+    /** the zone of a byte that is white space, as removed by String.trim() */
+    public static final int BLANK = 0x40;
+    /** the zone of a byte that cannot appear in a zoned number */
+    public static final int INVALID = 0x80;
+    
+    /** masks the zone of a value returned by {@link #zoned(byte)} */
+    public static final int ZONE_MASK = 0xF0;
+    /** masks the digit of a value returned by {@link #zoned(byte)} */
+    public static final int DIGIT_MASK = 0x0F;
+    
+    private static final String POSITIVE_OVERPUNCH = "{ABCDEFGHI";
+    private static final String NEGATIVE_OVERPUNCH = "}JKLMNOPQR";
+    
+    private static final ConcurrentMap<String, CodePage> CODE_PAGES = 
+        new ConcurrentHashMap<String, CodePage>();
+    
+    private final String encoding;
+    private final char[] chars;
+    private final byte[] bytes;
+    private final byte[] zoned;
+    private final byte[] digits;
+    private final byte[] positive;
+    private final byte[] negative;
+    private final byte[] signs;
+    
+    private CodePage(String encoding) {
+        this.encoding = encoding;
+        
+        Charset charset = Charset.forName(encoding);
+        
+        if (charset.newEncoder().maxBytesPerChar() != 1.0f 
+            || charset.newDecoder().maxCharsPerByte() != 1.0f) {
+            chars = null;
+            bytes = null;
+            zoned = null;
+            digits = null;
+            positive = null;
+            negative = null;
+            signs = null;
+            return;
+        }
+        
+        CharsetDecoder decoder = charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        
+        CharsetEncoder encoder = charset.newEncoder();
+        
+        chars = new char[256];
+        bytes = new byte[65536];
+        zoned = new byte[256];
+        
+        for (int i = 0; i < 256; i++) {
+            chars[i] = decode(decoder, (byte) i);
+            zoned[i] = (byte) zone(chars[i]);
+        }
+        
+        /* chars that cannot be encoded become the replacement, as with String.getBytes() */
+        Arrays.fill(bytes, encoder.replacement()[0]);
+        
+        for (int i = 0; i < 256; i++) {
+            char c = chars[i];
+            
+            if (c != '\uFFFD' && encoder.canEncode(c)) {
+                bytes[c] = encode(charset, String.valueOf(c))[0];
+            }
+        }
+        
+        digits = encode(charset, "0123456789");
+        positive = encode(charset, POSITIVE_OVERPUNCH);
+        negative = encode(charset, NEGATIVE_OVERPUNCH);
+        signs = encode(charset, "+-");
+    }
+    
+    private static byte[] encode(Charset charset, String s) {
+        byte[] bytes = s.getBytes(charset);
+        
+        if (bytes.length != s.length()) {
+            throw new IllegalStateException(charset + " cannot encode " + s);
+        }
+        
+        return bytes;
+    }
+    
+    private static char decode(CharsetDecoder decoder, byte b) {
+        try {
+            CharBuffer decoded = decoder.reset().decode(ByteBuffer.wrap(new byte[] {b}));
+            return decoded.length() == 1 ? decoded.get(0) : '\uFFFD';
+        } catch (CharacterCodingException e) {
+            return '\uFFFD';
+        }
+    }
+    
+    private static int zone(char c) {
+        if ('0' <= c && c <= '9') {
+            return DIGIT | (c - '0');
+        } else if (POSITIVE_OVERPUNCH.indexOf(c) >= 0) {
+            return POSITIVE | POSITIVE_OVERPUNCH.indexOf(c);
+        } else if (NEGATIVE_OVERPUNCH.indexOf(c) >= 0) {
+            return NEGATIVE | NEGATIVE_OVERPUNCH.indexOf(c);
+        } else if (c <= ' ') {
+            return BLANK;
+        } else {
+            return INVALID;
+        }
+    }
+    
+    /**
+     * returns the code page for the given encoding, building its 
+     * tables on first use
+     * 
+     * @param encoding the name of the encoding
+     * @return the code page for the encoding
+     * @throws java.nio.charset.UnsupportedCharsetException if the 
+     * encoding is not supported
+     */
+    public static CodePage forEncoding(String encoding) {
+        CodePage codePage = CODE_PAGES.get(encoding);
+        
+        if (codePage == null) {
+            codePage = new CodePage(encoding);
+            CodePage existing = CODE_PAGES.putIfAbsent(encoding, codePage);
+            codePage = existing == null ? codePage : existing;
+        }
+        
+        return codePage;
+    }
+    
+    /**
+     * returns the name of the encoding
+     * 
+     * @return the name of the encoding
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+    
+    /**
+     * whether the encoding maps every char to a single byte and back, 
+     * only then are the tables available
+     * 
+     * @return whether the encoding is single-byte
+     */
+    public boolean isSingleByte() {
+        return chars != null;
+    }
+    
+    /**
+     * classifies a byte of a zoned decimal number.  The result is one 
+     * of the zones DIGIT, POSITIVE, NEGATIVE, BLANK or INVALID, for the 
+     * first three combined with the value of the digit.
+     * 
+     * @param b the byte to classify
+     * @return the zone and digit of the byte
+     */
+    public int zoned(byte b) {
+        return zoned[b & 0xFF] & 0xFF;
+    }
+    
+    /**
+     * returns the byte for a plain digit
+     * 
+     * @param digit the digit 0 - 9
+     * @return the byte for the digit
+     */
+    public byte digit(int digit) {
+        return digits[digit];
+    }
+    
+    /**
+     * returns the byte for a digit overpunched with a sign, e.g. 
+     * 'C' for a positive 3 and 'L' for a negative 3
+     * 
+     * @param digit the digit 0 - 9
+     * @param negative whether to overpunch a negative sign
+     * @return the byte for the overpunched digit
+     */
+    public byte overpunch(int digit, boolean negative) {
+        return negative ? this.negative[digit] : positive[digit];
+    }
+    
+    /**
+     * returns the byte for a separate sign
+     * 
+     * @param negative whether to return the minus rather than the plus sign
+     * @return the byte for '+' or '-'
+     */
+    public byte sign(boolean negative) {
+        return signs[negative ? 1 : 0];
+    }
+    
+    /**
+     * decodes a range of bytes by table lookup
+     * 
+     * @param data the buffer holding the bytes
+     * @param offset the position of the first byte
+     * @param length the number of bytes
+     * @return the decoded String
+     */
+    public String decode(byte[] data, int offset, int length) {
+        char[] decoded = new char[length];
+        
+        for (int i = 0; i < length; i++) {
+            decoded[i] = chars[data[offset + i] & 0xFF];
+        }
+        
+        return new String(decoded);
+    }
+    
+    /**
+     * encodes a String by table lookup, one byte per char
+     * 
+     * @param s the String to encode
+     * @return the encoded bytes
+     */
+    public byte[] encode(String s) {
+        byte[] encoded = new byte[s.length()];
+        encode(s, encoded, 0, encoded.length);
+        return encoded;
+    }
+    
+    /**
+     * encodes the start of a String into a buffer by table lookup
+     * 
+     * @param s the String to encode
+     * @param output the buffer to write to
+     * @param offset the position in the buffer for the first byte
+     * @param length the maximum number of chars to encode
+     * @return the number of bytes written
+     */
+    public int encode(String s, byte[] output, int offset, int length) {
+        int count = Math.min(s.length(), length);
+        
+        for (int i = 0; i < count; i++) {
+            output[offset + i] = bytes[s.charAt(i)];
+        }
+        
+        return count;
+    }
+}
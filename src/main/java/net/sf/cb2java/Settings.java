@@ -111,4 +111,111 @@ public interface Settings {
 			return DEFAULT_COLUMN_END;
 		}
 	}
+
+	/**
+	 * An immutable copy of settings.  The with methods return a modified
+	 * copy, so a snapshot can be shared between threads and swapped for
+	 * another one without locking.
+	 */
+	static final class Snapshot implements Settings {
+		private final String encoding;
+		private final Values values;
+		private final boolean littleEndian;
+		private final String floatConversion;
+		private final SignPosition signPosition;
+		private final int columnStart;
+		private final int columnEnd;
+
+		private Snapshot(String encoding, Values values, boolean littleEndian, String floatConversion,
+				SignPosition signPosition, int columnStart, int columnEnd) {
+			this.encoding = encoding;
+			this.values = values;
+			this.littleEndian = littleEndian;
+			this.floatConversion = floatConversion;
+			this.signPosition = signPosition;
+			this.columnStart = columnStart;
+			this.columnEnd = columnEnd;
+		}
+
+		/**
+		 * copies the given settings, reading each of them once
+		 * 
+		 * @param settings the settings to copy, null for the defaults
+		 * @return an immutable copy of the settings
+		 */
+		public static Snapshot of(Settings settings) {
+			if (settings instanceof Snapshot) {
+				return (Snapshot) settings;
+			}
+
+			Settings s = settings == null ? DEFAULT : settings;
+			return new Snapshot(s.getEncoding(), s.getValues(), s.getLittleEndian(), s.getFloatConversion(),
+					s.getSignPosition(), s.getColumnStart(), s.getColumnEnd());
+		}
+
+		public String getEncoding() {
+			return encoding;
+		}
+
+		public Values getValues() {
+			return values;
+		}
+
+		public boolean getLittleEndian() {
+			return littleEndian;
+		}
+
+		public String getFloatConversion() {
+			return floatConversion;
+		}
+
+		public SignPosition getSignPosition() {
+			return signPosition;
+		}
+
+		public int getColumnStart() {
+			return columnStart;
+		}
+
+		public int getColumnEnd() {
+			return columnEnd;
+		}
+
+		public Snapshot withEncoding(String encoding) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		public Snapshot withValues(Values values) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		public Snapshot withLittleEndian(boolean littleEndian) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		public Snapshot withFloatConversion(String floatConversion) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		public Snapshot withSignPosition(SignPosition signPosition) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		public Snapshot withColumns(int columnStart, int columnEnd) {
+			return new Snapshot(encoding, values, littleEndian, floatConversion, signPosition, columnStart,
+					columnEnd);
+		}
+
+		@Override
+		public String toString() {
+			return "Settings[encoding=" + encoding + ", littleEndian=" + littleEndian + ", floatConversion="
+					+ floatConversion + ", signPosition=" + signPosition + ", columns=" + columnStart + "-"
+					+ columnEnd + "]";
+		}
+	}
 }
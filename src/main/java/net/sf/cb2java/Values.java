@@ -25,22 +25,49 @@ import java.nio.charset.UnsupportedCharsetException;
 
 public class Values {
 	
-    private String encoding;
+    private final String encoding;
     
     public Values() {
-        ((StringBasedValue) SPACES).bite = ' ';
-        ((StringBasedValue) QUOTES).bite = '"';
-        ((StringBasedValue) ZEROES).bite = '0';
+        this(null, (byte) ' ', (byte) '"', (byte) '0');
     }
     
+    /**
+     * creates the values for the given single byte encoding
+     * 
+     * @param encoding the encoding of the figurative constants
+     */
+    public Values(String encoding) {
+        this(tested(encoding), bite(" ", encoding), bite("\"", encoding), bite("0", encoding));
+    }
+    
+    private Values(String encoding, byte space, byte quote, byte zero) {
+        this.encoding = encoding;
+        this.SPACES = new StringBasedValue(space);
+        this.QUOTES = new StringBasedValue(quote);
+        this.ZEROES = new StringBasedValue(zero);
+    }
+    
+    /**
+     * values are shared by the elements of a copybook and every thread 
+     * using it, so they cannot be changed
+     * 
+     * @deprecated create the values with {@link #Values(String)}
+     * @throws UnsupportedOperationException always
+     */
+    @Deprecated
     public void setEncoding(String encoding) {
+        throw new UnsupportedOperationException("values cannot be changed, create them with new Values(\"" 
+            + encoding + "\")");
+    }
+    
+    private static String tested(String encoding) {
         testEncoding(encoding);
-        this.encoding = encoding;
-        
+        return encoding;
+    }
+    
+    private static byte bite(String s, String encoding) {
         try {
-            ((StringBasedValue) SPACES).bite = " ".getBytes(encoding)[0];
-            ((StringBasedValue) QUOTES).bite = "\"".getBytes(encoding)[0];
-            ((StringBasedValue) ZEROES).bite = "0".getBytes(encoding)[0];
+            return s.getBytes(encoding)[0];
         } catch (UnsupportedEncodingException e) {
             throw new UnsupportedCharsetException(encoding);
         }
@@ -93,12 +120,13 @@ public class Values {
     
     private class StringBasedValue extends Value
     {
-        public StringBasedValue(Values parent)
+        private final byte bite;
+        
+        public StringBasedValue(byte bite)
         {
             super(Values.this);
+            this.bite = bite;
         }
-
-        byte bite;
         
         public byte getByte()
         {
@@ -106,7 +134,7 @@ public class Values {
         }
     }
     
-    public final Value SPACES = new StringBasedValue(Values.this);
+    public final Value SPACES;
     
     public final Value LOW_VALUES = new Value(Values.this) {
 
@@ -124,9 +152,9 @@ public class Values {
         }
     };
     
-    public final Value ZEROES = new StringBasedValue(Values.this);
+    public final Value ZEROES;
     
-    public final Value QUOTES = new StringBasedValue(Values.this);
+    public final Value QUOTES;
     
     public final Value NULLS = LOW_VALUES;
 }
\ No newline at end of file
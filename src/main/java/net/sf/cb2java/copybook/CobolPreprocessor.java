@@ -39,9 +39,19 @@ public class CobolPreprocessor {
 	}
 
 	public static String preProcess(Reader reader) {
-    	// TODO: figure out a way to pass copybook specific settings for non-default margins treated as comment.
-		int columnStart = Settings.DEFAULT.getColumnStart();
-		int columnEnd = Settings.DEFAULT.getColumnEnd();
+		return preProcess(reader, Settings.DEFAULT);
+	}
+
+	/**
+	 * chops the margins given by the settings
+	 * 
+	 * @param reader the copybook source
+	 * @param settings the settings with the first and last column of the copybook
+	 * @return the copybook source without the margins
+	 */
+	public static String preProcess(Reader reader, Settings settings) {
+		int columnStart = settings.getColumnStart();
+		int columnEnd = settings.getColumnEnd();
 
 		StringBuffer sb = new StringBuffer();
 
@@ -0,0 +1,590 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import net.sf.cb2java.CodePage;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.data.Record;
+import net.sf.cb2java.types.Binary;
+import net.sf.cb2java.types.Decimal;
+import net.sf.cb2java.types.Element;
+import net.sf.cb2java.types.Group;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+import net.sf.cb2java.types.Packed;
+
+/**
+ * Generates a {@link RecordCodec} for a copybook at run-time.
+ *
+ * <p>The generated class has one method per group definition that
+ * decodes or encodes its children in straight-line code, with the
+ * offsets as constants.  Packed, binary and zoned decimal fields of up
+ * to 18 digits call the static long decoders and encoders of their type
+ * directly, with the length, sign, byte order and bounds of the field
+ * as literals, and create the data holding the long themselves.  Only
+ * values that do not fit in a long, blanks and the other types go
+ * through the element, which is held in a field of its own class.
+ *
+ * <p>The class is written as Java source and compiled in memory with the
+ * system Java compiler, so copybooks can still change without rebuilding
+ * the application.  Where no compiler is available, e.g. on a JRE, or
+ * generation fails for any other reason, the interpreter is used instead
+ * and the failure is available from {@link RecordCodec#getFailure()}.
+ */
+public final class CodecGenerator
+{
+    private static final String PACKAGE = "net.sf.cb2java.copybook.generated";
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    private CodecGenerator()
+    {
+    }
+
+    /**
+     * returns a generated codec for the copybook or, if generation
+     * fails, one that interprets the element tree
+     *
+     * @param copybook the copybook to create the codec for
+     * @return a codec for the copybook
+     */
+    public static RecordCodec forCopybook(Copybook copybook)
+    {
+        try {
+            return generate(copybook);
+        } catch (Exception e) {
+            return interpreter(copybook, e);
+        } catch (LinkageError e) {
+            return interpreter(copybook, e);
+        }
+    }
+
+    /**
+     * returns a codec that interprets the element tree of the copybook
+     *
+     * @param copybook the copybook to create the codec for
+     * @return a codec for the copybook
+     */
+    public static RecordCodec interpreter(Copybook copybook)
+    {
+        return interpreter(copybook, null);
+    }
+
+    private static RecordCodec interpreter(final Copybook copybook, final Throwable failure)
+    {
+        return new RecordCodec() {
+            public Record decode(byte[] record, int offset)
+            {
+                return new Record((GroupData) copybook.parse(record, offset));
+            }
+
+            public void encode(Record record, byte[] output, int offset)
+            {
+                copybook.getLayout().write(record, output, offset);
+            }
+
+            public boolean isGenerated()
+            {
+                return false;
+            }
+
+            public Throwable getFailure()
+            {
+                return failure;
+            }
+        };
+    }
+
+    /**
+     * generates and compiles a codec for the copybook
+     *
+     * @param copybook the copybook to generate the codec for
+     * @return the generated codec
+     * @throws IllegalStateException if no Java compiler is available,
+     * the cb2java classes cannot be located or the generated source does
+     * not compile
+     * @throws ReflectiveOperationException if the class cannot be loaded
+     */
+    public static RecordCodec generate(Copybook copybook) throws ReflectiveOperationException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+        if (compiler == null) {
+            throw new IllegalStateException("no Java compiler available");
+        }
+
+        String simpleName = "Codec" + COUNT.incrementAndGet();
+        String className = PACKAGE + "." + simpleName;
+        Source source = new Source(copybook, simpleName);
+        byte[] bytes = compile(compiler, className, source.toString());
+
+        ClassLoader loader = new DefiningClassLoader(CodecGenerator.class.getClassLoader(), className, bytes);
+        Class<?> type = loader.loadClass(className);
+
+        return (RecordCodec) type.getConstructor(Copybook.class, Element[].class)
+            .newInstance(copybook, source.elements.toArray(new Element[source.elements.size()]));
+    }
+
+    private static byte[] compile(JavaCompiler compiler, String className, final String source)
+    {
+        StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ForwardingJavaFileManager<StandardJavaFileManager> manager =
+            new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String name,
+                    JavaFileObject.Kind kind, FileObject sibling)
+                {
+                    return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/')
+                        + kind.extension), kind) {
+                        @Override
+                        public OutputStream openOutputStream()
+                        {
+                            return out;
+                        }
+                    };
+                }
+            };
+
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/')
+            + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors)
+            {
+                return source;
+            }
+        };
+
+        StringWriter errors = new StringWriter();
+        List<String> options = Arrays.asList("-classpath", classPath(), "-proc:none", "-nowarn");
+        Boolean success = compiler.getTask(errors, manager, null, options, null, Arrays.asList(file)).call();
+
+        if (!Boolean.TRUE.equals(success)) {
+            throw new IllegalStateException("generated codec does not compile: " + errors);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * the location of cb2java itself, which is all the generated class
+     * refers to besides the platform classes.  It does not depend on
+     * how the application was started or which class loader loaded
+     * cb2java.
+     */
+    private static String classPath()
+    {
+        CodeSource source = CodecGenerator.class.getProtectionDomain().getCodeSource();
+
+        if (source == null || source.getLocation() == null
+            || !"file".equals(source.getLocation().getProtocol())) {
+            throw new IllegalStateException("cb2java is not loaded from a file or directory: "
+                + (source == null ? null : source.getLocation()));
+        }
+
+        try {
+            return new File(source.getLocation().toURI()).getPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("cannot locate cb2java: " + source.getLocation(), e);
+        }
+    }
+
+    /**
+     * the condition under which an unscaled value does not fit the
+     * field, with the bounds as literals, or null if every long fits
+     *
+     * @param value the expression holding the unscaled value
+     */
+    static String outOfRange(Numeric field, String value)
+    {
+        if (field.digits() > Numeric.MAX_LONG_DIGITS) {
+            return field.signed() ? null : value + " < 0L";
+        }
+
+        long max = Numeric.powerOfTen(field.digits()) - 1;
+
+        return value + " < " + (field.signed() ? -max : 0) + "L || " + value + " > " + max + "L";
+    }
+
+    /**
+     * the expression decoding the field into a long, or null if the
+     * field has to be parsed by its element.  Subclasses of the types
+     * may decode differently, so only the exact classes qualify.  Zoned
+     * decimals are decoded with the code page in <code>p</code>.
+     *
+     * @param at the expression holding the offset of the field
+     * @param singleByte whether zoned decimals can be decoded through the 
+     * tables of the code page
+     */
+    static String decoder(Element element, String at, boolean singleByte)
+    {
+        Class<?> type = element.getClass();
+
+        if (type == Packed.class && ((Packed) element).digits() <= Numeric.MAX_LONG_DIGITS) {
+            Packed field = (Packed) element;
+
+            return "Packed.decodeLong(b, " + at + ", " + field.getLength() + ", " + field.signed() + ")";
+        } else if (type == Binary.class || type == Binary.Native.class) {
+            Binary field = (Binary) element;
+
+            return "Binary.decodeLong(b, " + at + ", " + field.getLength() + ", " + field.signed()
+                + ", " + field.littleEndian() + ")";
+        } else if (type == Decimal.class && singleByte) {
+            Decimal field = (Decimal) element;
+
+            if (field.signed() && field.getSignPosition() == null) {
+                return null;
+            }
+
+            return "Decimal.decodeLong(b, " + at + ", " + field.getLength() + ", p, " + sign(field) + ")";
+        }
+
+        return null;
+    }
+
+    /**
+     * the statement encoding the value into the field, which must have a 
+     * decoder
+     *
+     * @param value the expression holding the unscaled value
+     * @param at the expression holding the offset of the field
+     */
+    static String encoder(Numeric field, String value, String at)
+    {
+        if (field instanceof Packed) {
+            return "Packed.encodeLong(" + value + ", " + field.signed() + ", b, " + at + ", " 
+                + field.getLength() + ")";
+        } else if (field instanceof Binary) {
+            return "Binary.encodeLong(" + value + ", b, " + at + ", " + field.getLength() + ", "
+                + ((Binary) field).littleEndian() + ")";
+        } else {
+            return "Decimal.encodeLong(" + value + ", b, " + at + ", " + field.getLength() + ", p, "
+                + sign((Decimal) field) + ")";
+        }
+    }
+
+    private static String sign(Decimal field)
+    {
+        return field.signed() ? "SignPosition." + field.getSignPosition().name() : "null";
+    }
+
+    private static final class DefiningClassLoader extends ClassLoader
+    {
+        private final String name;
+        private final byte[] bytes;
+
+        DefiningClassLoader(ClassLoader parent, String name, byte[] bytes)
+        {
+            super(parent);
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String className) throws ClassNotFoundException
+        {
+            if (!className.equals(name)) {
+                throw new ClassNotFoundException(className);
+            }
+
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * writes the source of the codec class
+     */
+    private static final class Source
+    {
+        /** the elements referenced by the class, passed to its constructor */
+        final List<Element> elements = new ArrayList<Element>();
+        private final Map<Element, Integer> indices = new IdentityHashMap<Element, Integer>();
+        private final Map<Group, String> groups = new HashMap<Group, String>();
+        private final StringBuilder fields = new StringBuilder();
+        private final StringBuilder methods = new StringBuilder();
+        /** whether zoned decimals can be decoded through the tables of the code page */
+        private final boolean singleByte;
+        private final String source;
+
+        Source(Copybook copybook, String simpleName)
+        {
+            singleByte = CodePage.forEncoding(copybook.getEncoding()).isSingleByte();
+
+            String root = group(copybook);
+            StringBuilder out = new StringBuilder();
+
+            out.append("package ").append(PACKAGE).append(";\n\n");
+            out.append("import java.util.ArrayList;\n");
+            out.append("import java.util.List;\n");
+            out.append("import net.sf.cb2java.CodePage;\n");
+            out.append("import net.sf.cb2java.copybook.Copybook;\n");
+            out.append("import net.sf.cb2java.data.Data;\n");
+            out.append("import net.sf.cb2java.data.DecimalData;\n");
+            out.append("import net.sf.cb2java.data.GroupData;\n");
+            out.append("import net.sf.cb2java.data.IntegerData;\n");
+            out.append("import net.sf.cb2java.data.Record;\n");
+            out.append("import net.sf.cb2java.types.Binary;\n");
+            out.append("import net.sf.cb2java.types.Decimal;\n");
+            out.append("import net.sf.cb2java.types.Element;\n");
+            out.append("import net.sf.cb2java.types.Numeric;\n");
+            out.append("import net.sf.cb2java.types.Packed;\n");
+            out.append("import net.sf.cb2java.types.SignPosition;\n\n");
+            out.append("public final class ").append(simpleName)
+                .append(" implements net.sf.cb2java.copybook.RecordCodec {\n");
+            out.append("    private final Copybook copybook;\n");
+            out.append("    private final CodePage p;\n");
+            out.append(fields);
+            out.append("\n    public ").append(simpleName).append("(Copybook copybook, Element[] e) {\n");
+            out.append("        this.copybook = copybook;\n");
+            out.append("        this.p = CodePage.forEncoding(copybook.getEncoding());\n");
+
+            for (int i = 0; i < elements.size(); i++) {
+                out.append("        this.e").append(i).append(" = (").append(typeName(elements.get(i)))
+                    .append(") e[").append(i).append("];\n");
+            }
+
+            out.append("    }\n\n");
+            out.append("    public Record decode(byte[] b, int o) {\n");
+            out.append("        return new Record(d").append(root).append("(b, o));\n");
+            out.append("    }\n\n");
+            out.append("    public void encode(Record r, byte[] b, int o) {\n");
+            out.append("        if (r.getDefinition() != copybook) {\n");
+            out.append("            throw new IllegalArgumentException(r.getName() + \" is not a record of \" + copybook.getName());\n");
+            out.append("        }\n");
+            out.append("        w").append(root).append("(r, b, o);\n");
+            out.append("    }\n\n");
+            out.append("    public boolean isGenerated() {\n");
+            out.append("        return true;\n");
+            out.append("    }\n\n");
+            out.append("    public Throwable getFailure() {\n");
+            out.append("        return null;\n");
+            out.append("    }\n\n");
+            out.append("    private static Data integer(Numeric e, long u) {\n");
+            out.append("        IntegerData d = new IntegerData(e);\n");
+            out.append("        d.setValue(u, false);\n");
+            out.append("        return d;\n");
+            out.append("    }\n\n");
+            out.append("    private static Data decimal(Numeric e, long u) {\n");
+            out.append("        DecimalData d = new DecimalData(e);\n");
+            out.append("        d.setUnscaledLong(u, false);\n");
+            out.append("        return d;\n");
+            out.append("    }\n\n");
+            out.append("    private static long unscaled(Data d) {\n");
+            out.append("        if (d instanceof IntegerData) {\n");
+            out.append("            IntegerData i = (IntegerData) d;\n");
+            out.append("            return i.isCompact() ? i.getLong() : Numeric.UNDECODABLE;\n");
+            out.append("        } else if (d instanceof DecimalData) {\n");
+            out.append("            DecimalData x = (DecimalData) d;\n");
+            out.append("            return x.isCompact() ? x.getUnscaledLong() : Numeric.UNDECODABLE;\n");
+            out.append("        }\n");
+            out.append("        return Numeric.UNDECODABLE;\n");
+            out.append("    }\n");
+            out.append(methods);
+            out.append("}\n");
+
+            this.source = out.toString();
+        }
+
+        private int element(Element element)
+        {
+            Integer index = indices.get(element);
+
+            if (index == null) {
+                index = elements.size();
+                elements.add(element);
+                indices.put(element, index);
+                fields.append("    private final ").append(typeName(element)).append(" e").append(index).append(";\n");
+            }
+
+            return index;
+        }
+
+        /**
+         * writes the decode and encode methods of the group and the
+         * groups in it, once per group definition
+         *
+         * @return the suffix of the method names
+         */
+        private String group(Group group)
+        {
+            String name = groups.get(group);
+
+            if (name != null) {
+                return name;
+            }
+
+            name = String.valueOf(element(group));
+            groups.put(group, name);
+
+            StringBuilder decode = new StringBuilder();
+            StringBuilder encode = new StringBuilder();
+            int count = 0;
+            int offset = 0;
+
+            for (Element child : group.getChildren()) {
+                String leaf = child instanceof Leaf ? "e" + element(child) : null;
+                String nested = child instanceof Group ? group((Group) child) : null;
+
+                if (leaf == null && nested == null) {
+                    throw new IllegalStateException("unsupported element " + child.getClass());
+                }
+
+                int occurs = child.getOccurs();
+                String at = "o + " + offset;
+                String index = String.valueOf(count);
+                String indent = "        ";
+
+                /* repeated items loop so large OCCURS do not blow the method size limit */
+                if (occurs > 1) {
+                    decode.append(indent).append("for (int i = 0; i < ").append(occurs).append("; i++) {\n");
+                    encode.append(indent).append("for (int i = 0; i < ").append(occurs).append("; i++) {\n");
+                    at = at + " + i * " + child.getLength();
+                    index = count + " + i";
+                    indent = indent + "    ";
+                }
+
+                if (nested != null) {
+                    decode.append(indent).append("c.add(d").append(nested).append("(b, ").append(at).append("));\n");
+                    encode.append(indent).append("w").append(nested).append("((GroupData) c.get(").append(index)
+                        .append("), b, ").append(at).append(");\n");
+                } else if (decoder(child, at, singleByte) != null) {
+                    numeric(decode, encode, (Numeric) child, leaf, at, index, indent);
+                } else {
+                    decode.append(indent).append("c.add(").append(leaf).append(".parse(b, ").append(at).append("));\n");
+                    encode.append(indent).append("v = c.get(").append(index).append(").getValue();\n");
+                    encode.append(indent).append(leaf).append(".validate(v);\n");
+                    encode.append(indent).append(leaf).append(".toBytes(v, b, ").append(at).append(");\n");
+                }
+
+                if (occurs > 1) {
+                    decode.append("        }\n");
+                    encode.append("        }\n");
+                }
+
+                count += occurs;
+                offset += occurs * child.getLength();
+            }
+
+            methods.append("\n    private GroupData d").append(name).append("(byte[] b, int o) {\n");
+            methods.append("        List<Data> c = new ArrayList<Data>(").append(count).append(");\n");
+            methods.append("        long u;\n");
+            methods.append(decode);
+            methods.append("        return new GroupData(e").append(name).append(", c);\n");
+            methods.append("    }\n");
+
+            methods.append("\n    private void w").append(name).append("(GroupData g, byte[] b, int o) {\n");
+            methods.append("        if (g.getDefinition() != e").append(name).append(") {\n");
+            methods.append("            throw new IllegalArgumentException(g.getName() + \" does not belong here\");\n");
+            methods.append("        }\n");
+            methods.append("        List<Data> c = g.getChildren();\n");
+            methods.append("        Data d;\n");
+            methods.append("        Object v;\n");
+            methods.append("        long u;\n");
+            methods.append(encode);
+            methods.append("    }\n");
+
+            return name;
+        }
+
+        /**
+         * writes a numeric field that is decoded into and encoded from a
+         * long by its type directly.  The element is only used for the 
+         * values that need a BigInteger or BigDecimal and for the error
+         * messages of values out of range.
+         */
+        private void numeric(StringBuilder decode, StringBuilder encode, Numeric field, String leaf,
+            String at, String index, String indent)
+        {
+            String check = outOfRange(field, "u");
+            String create = field.decimalPlaces() > 0 ? "decimal" : "integer";
+
+            decode.append(indent).append("u = ").append(decoder(field, at, singleByte)).append(";\n");
+            decode.append(indent).append("if (u == Numeric.UNDECODABLE) {\n");
+            decode.append(indent).append("    c.add(").append(leaf).append(".parse(b, ").append(at).append("));\n");
+            decode.append(indent).append("} else {\n");
+            validate(decode, check, leaf, indent + "    ");
+            decode.append(indent).append("    c.add(").append(create).append("(").append(leaf).append(", u));\n");
+            decode.append(indent).append("}\n");
+
+            encode.append(indent).append("d = c.get(").append(index).append(");\n");
+            encode.append(indent).append("u = unscaled(d);\n");
+            encode.append(indent).append("if (u == Numeric.UNDECODABLE) {\n");
+            encode.append(indent).append("    v = d.getValue();\n");
+            encode.append(indent).append("    ").append(leaf).append(".validate(v);\n");
+            encode.append(indent).append("    ").append(leaf).append(".toBytes(v, b, ").append(at).append(");\n");
+            encode.append(indent).append("} else {\n");
+            validate(encode, check, leaf, indent + "    ");
+            encode.append(indent).append("    ").append(encoder(field, "u", at)).append(";\n");
+            encode.append(indent).append("}\n");
+        }
+
+        private static void validate(StringBuilder out, String check, String leaf, String indent)
+        {
+            if (check != null) {
+                out.append(indent).append("if (").append(check).append(") {\n");
+                out.append(indent).append("    ").append(leaf).append(".validateUnscaled(u);\n");
+                out.append(indent).append("}\n");
+            }
+        }
+
+        /**
+         * the most specific public class of the element, which lets the
+         * compiler bind every call site to that class
+         */
+        private static String typeName(Element element)
+        {
+            Class<?> type = element.getClass();
+
+            while (!Modifier.isPublic(type.getModifiers()) || type.isAnonymousClass()
+                || type.getCanonicalName() == null) {
+                type = type.getSuperclass();
+            }
+
+            return type.getCanonicalName();
+        }
+
+        @Override
+        public String toString()
+        {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+
+/**
+ * The columns decoded by a {@link ColumnReader} from a batch of records.
+ *
+ * <p>Each column has one entry per record, in record order.  Numeric
+ * columns hold the unscaled values, e.g. 12345 for 123.45 in a field with
+ * two decimal places, together with the scale; {@link #getDoubles(int)}
+ * converts them.  Text columns hold codes into a dictionary of the
+ * distinct values of the batch, in order of first appearance.
+ */
+public class ColumnBatch
+{
+    /**
+     * the representation of a column
+     */
+    public enum Type
+    {
+        /** unscaled values in a long[] with a scale */
+        NUMERIC,
+        /** values in a double[] */
+        FLOATING,
+        /** codes in an int[] into a dictionary of strings */
+        TEXT
+    }
+
+    private final String[] paths;
+    private final Type[] types;
+    private final int[] scales;
+    private final int size;
+    private final long[][] longs;
+    private final double[][] doubles;
+    private final int[][] codes;
+    private final Dictionary[] dictionaries;
+    private final BitSet[] nulls;
+
+    ColumnBatch(String[] paths, Type[] types, Leaf[] elements, int size)
+    {
+        int columns = paths.length;
+
+        this.paths = paths;
+        this.types = types;
+        this.size = size;
+        this.scales = new int[columns];
+        this.longs = new long[columns][];
+        this.doubles = new double[columns][];
+        this.codes = new int[columns][];
+        this.dictionaries = new Dictionary[columns];
+        this.nulls = new BitSet[columns];
+
+        for (int i = 0; i < columns; i++) {
+            switch (types[i]) {
+            case NUMERIC:
+                scales[i] = ((Numeric) elements[i]).decimalPlaces();
+                longs[i] = new long[size];
+                break;
+            case FLOATING:
+                doubles[i] = new double[size];
+                break;
+            default:
+                codes[i] = new int[size];
+                dictionaries[i] = new Dictionary(elements[i].getLength());
+                break;
+            }
+        }
+    }
+
+    /**
+     * returns the number of records
+     *
+     * @return the number of records
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount()
+    {
+        return paths.length;
+    }
+
+    /**
+     * returns the index of the column with the given path
+     *
+     * @param path the path the column was read with, irrespective of case
+     * @return the index of the column or -1 if there is none
+     */
+    public int indexOf(String path)
+    {
+        String key = path.toUpperCase(Locale.ENGLISH);
+
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].toUpperCase(Locale.ENGLISH).equals(key)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    public String getPath(int column)
+    {
+        return paths[column];
+    }
+
+    public Type getType(int column)
+    {
+        return types[column];
+    }
+
+    /**
+     * returns the number of decimal places of a numeric column
+     *
+     * @param column the index of the column
+     * @return the scale of the unscaled values
+     */
+    public int getScale(int column)
+    {
+        check(column, Type.NUMERIC);
+        return scales[column];
+    }
+
+    /**
+     * returns the unscaled values of a numeric column.  The array is not
+     * copied.
+     *
+     * @param column the index of the column
+     * @return the unscaled values, 0 where null
+     */
+    public long[] getUnscaled(int column)
+    {
+        check(column, Type.NUMERIC);
+        return longs[column];
+    }
+
+    /**
+     * returns the values of a numeric or floating column as doubles.  The
+     * array of a floating column is not copied.
+     *
+     * @param column the index of the column
+     * @return the values, NaN where null
+     */
+    public double[] getDoubles(int column)
+    {
+        if (types[column] == Type.FLOATING) {
+            return doubles[column];
+        }
+
+        check(column, Type.NUMERIC);
+
+        long[] unscaled = longs[column];
+        int scale = scales[column];
+        double divisor = Numeric.powerOfTen(scale);
+        double[] result = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            long u = unscaled[i];
+
+            if (isNull(column, i)) {
+                result[i] = Double.NaN;
+            } else if (Math.abs(u) < (1L << 53)) {
+                /* both operands are exact, so the quotient is correctly rounded */
+                result[i] = u / divisor;
+            } else {
+                result[i] = BigDecimal.valueOf(u, scale).doubleValue();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * returns the dictionary codes of a text column.  The array is not
+     * copied.
+     *
+     * @param column the index of the column
+     * @return the index of each value in the dictionary
+     */
+    public int[] getCodes(int column)
+    {
+        check(column, Type.TEXT);
+        return codes[column];
+    }
+
+    /**
+     * returns the distinct values of a text column in order of first
+     * appearance
+     *
+     * @param column the index of the column
+     * @return the values the codes refer to
+     */
+    public List<String> getDictionary(int column)
+    {
+        check(column, Type.TEXT);
+        return dictionaries[column].values();
+    }
+
+    /**
+     * returns the value of a text column for one record
+     *
+     * @param column the index of the column
+     * @param row the index of the record
+     * @return the value
+     */
+    public String getString(int column, int row)
+    {
+        return getDictionary(column).get(codes[column][row]);
+    }
+
+    /**
+     * whether the value of a record reads as null through the dynamic API
+     *
+     * @param column the index of the column
+     * @param row the index of the record
+     * @return whether the value is null
+     */
+    public boolean isNull(int column, int row)
+    {
+        return nulls[column] != null && nulls[column].get(row);
+    }
+
+    private void check(int column, Type type)
+    {
+        if (types[column] != type) {
+            throw new IllegalArgumentException(paths[column] + " is a " + types[column] + " column");
+        }
+    }
+
+    void setLong(int column, int row, long value)
+    {
+        longs[column][row] = value;
+    }
+
+    void setDouble(int column, int row, double value)
+    {
+        doubles[column][row] = value;
+    }
+
+    void setNull(int column, int row)
+    {
+        if (nulls[column] == null) {
+            nulls[column] = new BitSet(size);
+        }
+
+        nulls[column].set(row);
+
+        if (doubles[column] != null) {
+            doubles[column][row] = Double.NaN;
+        }
+    }
+
+    void setText(int column, int row, byte[] bytes, int offset, Leaf element)
+    {
+        codes[column][row] = dictionaries[column].code(bytes, offset, element);
+    }
+
+    /**
+     * the distinct values of a text column.  Values are looked up by
+     * their bytes so a repeated value is not decoded again; different
+     * bytes that decode to the same value share its code.
+     */
+    private static final class Dictionary
+    {
+        private final int length;
+        private final List<String> values = new ArrayList<String>();
+        private final Map<String, Integer> codes = new HashMap<String, Integer>();
+        /** the distinct byte sequences seen, one after the other */
+        private byte[] keys = new byte[0];
+        /** the code of each byte sequence */
+        private int[] keyCodes = new int[0];
+        private int keyCount;
+        /** open addressing table of indexes into the byte sequences, -1 if empty */
+        private int[] table = new int[16];
+
+        Dictionary(int length)
+        {
+            this.length = length;
+            Arrays.fill(table, -1);
+        }
+
+        int code(byte[] bytes, int offset, Leaf element)
+        {
+            int mask = table.length - 1;
+
+            for (int slot = hash(bytes, offset) & mask;; slot = (slot + 1) & mask) {
+                int key = table[slot];
+
+                if (key < 0) {
+                    return add(slot, bytes, offset, element);
+                } else if (matches(key, bytes, offset)) {
+                    return keyCodes[key];
+                }
+            }
+        }
+
+        private int add(int slot, byte[] bytes, int offset, Leaf element)
+        {
+            String value = (String) element.parse(bytes, offset).getValue();
+            Integer code = codes.get(value);
+
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+
+            if (keyCodes.length == keyCount) {
+                int capacity = Math.max(16, keyCount * 2);
+                keys = Arrays.copyOf(keys, capacity * length);
+                keyCodes = Arrays.copyOf(keyCodes, capacity);
+            }
+
+            int key = keyCount++;
+            System.arraycopy(bytes, offset, keys, key * length, length);
+            keyCodes[key] = code;
+            table[slot] = key;
+
+            if (keyCount * 2 > table.length) {
+                rehash();
+            }
+
+            return code;
+        }
+
+        private boolean matches(int key, byte[] bytes, int offset)
+        {
+            int start = key * length;
+
+            for (int i = 0; i < length; i++) {
+                if (keys[start + i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private int hash(byte[] bytes, int offset)
+        {
+            int hash = 1;
+
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[offset + i];
+            }
+
+            return hash ^ (hash >>> 16);
+        }
+
+        private void rehash()
+        {
+            table = new int[table.length * 2];
+            Arrays.fill(table, -1);
+
+            int mask = table.length - 1;
+
+            for (int key = 0; key < keyCount; key++) {
+                int slot = hash(keys, key * length) & mask;
+
+                while (table[slot] >= 0) {
+                    slot = (slot + 1) & mask;
+                }
+
+                table[slot] = key;
+            }
+        }
+
+        List<String> values()
+        {
+            return Collections.unmodifiableList(values);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import net.sf.cb2java.types.Characters;
+import net.sf.cb2java.types.Floating;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+
+/**
+ * Decodes a few fields of many records into columns.
+ *
+ * <p>The reader is compiled once for a copybook and a list of field
+ * paths, e.g. <code>ROOT.AMOUNT</code> or <code>ROOT.SUB(2).E</code>, and
+ * then decodes a buffer of consecutive fixed-length records in one pass,
+ * record by record, without building a {@link net.sf.cb2java.data.Record}.
+ * Numeric fields become the unscaled values in a <code>long[]</code>,
+ * floating point fields a <code>double[]</code> and alphanumeric fields
+ * dictionary codes in an <code>int[]</code>, see {@link ColumnBatch}.
+ *
+ * <p>Numeric fields of up to 18 digits are decoded without allocating.
+ * Each distinct value of a text column is decoded once per batch, repeats
+ * are found by their bytes.  Values that read as null through the
+ * dynamic API, e.g. blank decimals, are marked as null in the batch.
+ *
+ * <p>A reader is immutable and can be shared between threads.
+ */
+public class ColumnReader
+{
+    private final int recordLength;
+    private final String[] paths;
+    private final int[] offsets;
+    private final Leaf[] elements;
+    private final ColumnBatch.Type[] types;
+
+    /**
+     * compiles a reader of the given fields
+     *
+     * @param copybook the copybook that defines the records
+     * @param paths the layout paths of the fields to read
+     * @throws IllegalArgumentException if a path cannot be found or a
+     * numeric field has more than 18 digits
+     */
+    public ColumnReader(Copybook copybook, String... paths)
+    {
+        Layout layout = copybook.getLayout();
+
+        this.recordLength = layout.getRecordLength();
+        this.paths = paths.clone();
+        this.offsets = new int[paths.length];
+        this.elements = new Leaf[paths.length];
+        this.types = new ColumnBatch.Type[paths.length];
+
+        for (int i = 0; i < paths.length; i++) {
+            int leaf = layout.indexOf(paths[i]);
+
+            if (leaf < 0) {
+                throw new IllegalArgumentException("no element with path '" + paths[i] + "'");
+            }
+
+            Leaf element = layout.getElement(leaf);
+
+            offsets[i] = layout.getOffset(leaf);
+            elements[i] = element;
+            types[i] = type(element, paths[i]);
+        }
+    }
+
+    private static ColumnBatch.Type type(Leaf element, String path)
+    {
+        if (element instanceof Numeric) {
+            if (((Numeric) element).digits() > Numeric.MAX_LONG_DIGITS) {
+                throw new IllegalArgumentException(path + " has more than "
+                    + Numeric.MAX_LONG_DIGITS + " digits and does not fit in a long column");
+            }
+
+            return ColumnBatch.Type.NUMERIC;
+        } else if (element instanceof Floating) {
+            return ColumnBatch.Type.FLOATING;
+        } else if (element instanceof Characters) {
+            return ColumnBatch.Type.TEXT;
+        } else {
+            throw new IllegalArgumentException(path + " has no column type");
+        }
+    }
+
+    /**
+     * returns the number of columns
+     *
+     * @return the number of columns
+     */
+    public int getColumnCount()
+    {
+        return paths.length;
+    }
+
+    /**
+     * decodes the columns of all records in the array
+     *
+     * @param records the records, one after the other
+     * @return the columns
+     * @throws IllegalArgumentException if the array does not hold a
+     * whole number of records
+     */
+    public ColumnBatch read(byte[] records)
+    {
+        if (records.length % recordLength != 0) {
+            throw new IllegalArgumentException(records.length + " bytes is not a multiple of the record length "
+                + recordLength);
+        }
+
+        return read(records, 0, records.length / recordLength);
+    }
+
+    /**
+     * decodes the columns of the given number of records
+     *
+     * @param records the buffer holding the records, one after the other
+     * @param offset the position of the first record in the buffer
+     * @param count the number of records
+     * @return the columns
+     * @throws IllegalArgumentException if the buffer is too short
+     */
+    public ColumnBatch read(byte[] records, int offset, int count)
+    {
+        if (offset < 0 || count < 0 || offset + (long) count * recordLength > records.length) {
+            throw new IllegalArgumentException(count + " records of " + recordLength
+                + " bytes do not fit in the buffer at " + offset);
+        }
+
+        ColumnBatch batch = new ColumnBatch(paths, types, elements, count);
+        int position = offset;
+
+        for (int row = 0; row < count; row++) {
+            for (int column = 0; column < elements.length; column++) {
+                int at = position + offsets[column];
+
+                switch (types[column]) {
+                case NUMERIC:
+                    readNumeric(batch, column, row, records, at);
+                    break;
+                case FLOATING:
+                    Object value = elements[column].parse(records, at).getValue();
+                    batch.setDouble(column, row, ((BigDecimal) value).doubleValue());
+                    break;
+                default:
+                    batch.setText(column, row, records, at, elements[column]);
+                    break;
+                }
+            }
+
+            position += recordLength;
+        }
+
+        return batch;
+    }
+
+    private void readNumeric(ColumnBatch batch, int column, int row, byte[] records, int at)
+    {
+        Numeric numeric = (Numeric) elements[column];
+        long unscaled = numeric.parseUnscaled(records, at);
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            batch.setLong(column, row, unscaled);
+            return;
+        }
+
+        Object value = numeric.parse(records, at).getValue();
+
+        if (value == null) {
+            batch.setNull(column, row);
+        } else if (value instanceof BigInteger) {
+            batch.setLong(column, row, ((BigInteger) value).longValue());
+        } else {
+            batch.setLong(column, row,
+                ((BigDecimal) value).setScale(numeric.decimalPlaces()).unscaledValue().longValue());
+        }
+    }
+}
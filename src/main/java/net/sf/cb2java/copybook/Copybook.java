@@ -20,12 +20,16 @@ package net.sf.cb2java.copybook;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import net.sf.cb2java.Settings;
 import net.sf.cb2java.Values;
+import net.sf.cb2java.data.Data;
+import net.sf.cb2java.data.FieldHandle;
 import net.sf.cb2java.data.GroupData;
 import net.sf.cb2java.data.Record;
 import net.sf.cb2java.types.Element;
@@ -42,26 +46,30 @@ import net.sf.cb2java.types.SignPosition;
  */
 public class Copybook extends Group implements Settings
 {
-    private String encoding = Settings.DEFAULT.getEncoding();
-    private boolean littleEndian = Settings.DEFAULT.getLittleEndian();
-    private String floatConversion = Settings.DEFAULT.getFloatConversion();
-    private SignPosition signPosition = Settings.DEFAULT.getSignPosition();
+    /** the settings for parsing and writing data, fixed once the copybook is frozen */
+    private final Settings.Snapshot settings;
     
     private Map<String, Element> redefines = new HashMap<String, Element>();
     
     private final Values values;
     
+    /** the source of the copybook, to parse it again with other settings */
+    private String source;
+    
+    /** the flattened layout, compiled on first use */
+    private volatile Layout layout;
+    
     /**
      * constructor
      *
      * @param name the name of the copybook
      */
-    Copybook(String name, Values values)
+    Copybook(String name, Values values, Settings settings)
     {
         super(name, 0, 0);
         
         this.values = values;
-        this.values.setEncoding(encoding);
+        this.settings = Settings.Snapshot.of(settings).withValues(values);
     }
     
     public Values getValues()
@@ -93,6 +101,83 @@ public class Copybook extends Group implements Settings
         return (Element) redefines.get(name);
     }
     
+    void setSource(String source)
+    {
+        this.source = source;
+    }
+    
+    /**
+     * parses this copybook again with other settings, e.g. 
+     * <code>copybook.withSettings(copybook.getSnapshot().withEncoding("Cp037"))</code>.
+     * This copybook is frozen and may be shared, so it is not changed.
+     * 
+     * @param settings the settings for the new copybook
+     * @return a new copybook with the given settings
+     */
+    public Copybook withSettings(Settings settings)
+    {
+        return CopybookParser.parse(getName(), new StringReader(source), settings);
+    }
+    
+    /**
+     * freezes the element tree once the analysis is complete. Positions
+     * and lengths are fixed from then on and the elements can no longer
+     * be modified.
+     */
+    void freeze()
+    {
+        freeze(0);
+    }
+    
+    /**
+     * returns the flattened layout of this copybook with the offset,
+     * length and element of every leaf.  The layout is compiled once,
+     * on first use.
+     * 
+     * @return the layout of this copybook
+     */
+    public Layout getLayout()
+    {
+        Layout result = layout;
+        
+        if (result == null) {
+            /* compiling twice in a race is harmless, the result is immutable */
+            result = new Layout(this);
+            layout = result;
+        }
+        
+        return result;
+    }
+    
+    /**
+     * resolves a field path, e.g. <code>CUST.ADDR(3).ZIP</code>, so the
+     * field can be fetched from records of this copybook with 
+     * {@link Record#get(FieldHandle)} without a search by name
+     * 
+     * @param path the path of the field, with 1-based subscripts
+     * @return the handle of the field
+     * @throws IllegalArgumentException if the path cannot be resolved
+     */
+    public FieldHandle compile(String path)
+    {
+        return FieldHandle.compile(this, path);
+    }
+    
+    /**
+     * decodes the given fields of consecutive records into columns, see
+     * {@link ColumnReader}.  Compile a ColumnReader to read many batches.
+     * 
+     * @param records the buffer holding the records, one after the other
+     * @param offset the position of the first record in the buffer
+     * @param count the number of records
+     * @param paths the layout paths of the fields, e.g. <code>ROOT.SUB(2).E</code>
+     * @return the columns
+     */
+    public ColumnBatch readColumns(byte[] records, int offset, int count, String... paths)
+    {
+        return new ColumnReader(this, paths).read(records, offset, count);
+    }
+    
     /**
      * creates a new empty application data instance
      * 
@@ -115,27 +200,132 @@ public class Copybook extends Group implements Settings
         return new Record((GroupData) parse(data));
     }
     
+    /**
+     * decodes a record into an existing record of this copybook, 
+     * overwriting the values of its fields.  Reusing one record for 
+     * every record of a file creates no new Data instances for numbers 
+     * of up to 18 digits.
+     * 
+     * @param record a record created or parsed by this copybook
+     * @param data the buffer holding the record
+     * @param offset the position of the record in the buffer
+     * @return the record
+     * @throws IllegalArgumentException if the record belongs to another 
+     * copybook
+     */
+    public Record parseInto(Record record, byte[] data, int offset)
+    {
+        parseInto((Data) record, data, offset);
+        return record;
+    }
+    
+    /**
+     * creates an application data element that decodes each field the
+     * first time it is accessed, which is cheaper when only a few fields 
+     * of a record are used.  The array is kept, not copied, and must not 
+     * be modified while the record is in use.
+     * 
+     * @param data the bytes of the record
+     * @return a record that decodes its fields on demand
+     */
+    public Record parseLazy(byte[] data)
+    {
+        return parseLazy(data, 0);
+    }
+    
+    /**
+     * creates an application data element that decodes each field the
+     * first time it is accessed
+     * 
+     * @param data the buffer holding the record, kept and not copied
+     * @param offset the position of the record in the buffer
+     * @return a record that decodes its fields on demand
+     * @see #parseLazy(byte[])
+     */
+    @Override
+    public Record parseLazy(byte[] data, int offset)
+    {
+        return new Record(super.parseLazy(data, offset));
+    }
+    
+    /**
+     * parses all the records in the given stream into a list.  All
+     * records are held in memory, use {@link #iterator(InputStream)}
+     * to process large inputs.
+     * 
+     * @param stream the stream to read the records from
+     * @return the records in the stream
+     * @throws IOException
+     */
     public List<Record> parseData(InputStream stream) throws IOException
     {
-        ByteBuffer buffer = new ByteBuffer(stream);        
+        RecordIterator iterator = iterator(stream);
         List<Record> list = new ArrayList<Record>();
         
-        while (buffer.hasNext()) {
-            list.add(new Record((GroupData) parse(buffer.getNext())));
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
         }
         
         return list;
     }
     
+    /**
+     * creates an iterator that parses the records in the given stream
+     * one at a time as they are requested.  Closing the iterator closes
+     * the stream.
+     * 
+     * @param stream the stream to read the records from
+     * @return a lazy iterator over the records in the stream
+     */
+    public RecordIterator iterator(InputStream stream)
+    {
+        return iterator(new RecordReader(Channels.newChannel(stream), getLength()));
+    }
+    
+    /**
+     * creates an iterator that parses the records read by the given 
+     * reader one at a time as they are requested.  Closing the iterator 
+     * closes the reader.
+     * 
+     * @param reader the reader of the records
+     * @return a lazy iterator over the records of the reader
+     */
+    public RecordIterator iterator(RecordReader reader)
+    {
+        if (reader.getLength() != getLength()) {
+            throw new IllegalArgumentException("reader has record length " + reader.getLength()
+                + " but " + getName() + " has length " + getLength());
+        }
+        
+        return new RecordIterator(this, reader);
+    }
+    
+    /**
+     * returns the settings used for parsing and writing data.  Every 
+     * element of the copybook is bound to this snapshot when the copybook 
+     * is analyzed, so all parses use the same settings.
+     * 
+     * @return the settings of this copybook
+     */
+    public Settings.Snapshot getSnapshot()
+    {
+        return settings;
+    }
+    
     /**
      * Sets the encoding for the copybook instance, used for parsing
-     * and writing of data
+     * and writing of data.  Copybooks are frozen once parsed and can be 
+     * shared, so this always fails.
      * 
      * @param encoding the encoding for the system
+     * @throws IllegalStateException as the copybook is frozen
+     * @deprecated use <code>withSettings(getSnapshot().withEncoding(encoding))</code>
+     * or pass the settings to {@link CopybookParser#parse(String, java.io.Reader, Settings)}
      */
+    @Deprecated
     public void setEncoding(String encoding)
     {
-        this.encoding = encoding;
+        throw frozen("withEncoding(\"" + encoding + "\")");
     }
     
     /**
@@ -145,128 +335,67 @@ public class Copybook extends Group implements Settings
      */
     public String getEncoding()
     {
-        return encoding;
+        return settings.getEncoding();
     }
     
+    /**
+     * @throws IllegalStateException as the copybook is frozen
+     * @deprecated use <code>withSettings(getSnapshot().withLittleEndian(littleEndian))</code>
+     */
+    @Deprecated
     public void setLittleEndian(boolean littleEndian)
     {
-        this.littleEndian = littleEndian;
+        throw frozen("withLittleEndian(" + littleEndian + ")");
     }
     
     public boolean getLittleEndian()
     {
-        return littleEndian;
+        return settings.getLittleEndian();
     }
     
+    /**
+     * @throws IllegalStateException as the copybook is frozen
+     * @deprecated use <code>withSettings(getSnapshot().withFloatConversion(className))</code>
+     */
+    @Deprecated
     public void setFloatConversion(String className)
     {
-        this.floatConversion = className;
+        throw frozen("withFloatConversion(\"" + className + "\")");
     }
     
     public String getFloatConversion()
     {
-        return floatConversion;
+        return settings.getFloatConversion();
     }
     
+    /**
+     * @throws IllegalStateException as the copybook is frozen
+     * @deprecated use <code>withSettings(getSnapshot().withSignPosition(position))</code>
+     */
+    @Deprecated
     public void setSignPosition(SignPosition position)
     {
-        this.signPosition = position;
+        throw frozen("withSignPosition(" + position + ")");
     }
     
     public SignPosition getSignPosition()
     {
-        return signPosition;
+        return settings.getSignPosition();
+    }
+    
+    private IllegalStateException frozen(String change)
+    {
+        return new IllegalStateException(getName() + " is frozen, use withSettings(getSnapshot()." 
+            + change + ") to parse it with other settings");
     }
     
 	@Override
 	public int getColumnStart() {
-		return Settings.DEFAULT.getColumnStart();
+		return settings.getColumnStart();
 	}
 
 	@Override
 	public int getColumnEnd() {
-		return Settings.DEFAULT.getColumnEnd();
+		return settings.getColumnEnd();
 	}
-
-	/**
-     * a helper class for buffering the data as it is processed
-     * 
-     * @author James Watson
-     */
-    public class ByteBuffer
-    {
-        // TODO allow strings, length delimiting
-        private int position = 0;
-        private byte[] internal = new byte[1024];
-        private int size = 0;
-        private final InputStream stream;
-        
-        public ByteBuffer(InputStream stream) throws IOException
-        {
-            this.stream = stream;
-        }
-        
-        private boolean getMore()
-        {
-            try {
-                byte[] array = new byte[1024];
-                int read = 0;
-                
-                while ((read = stream.read(array)) >= 0) {
-                    add(array, read);
-                    
-                    if (read >= getLength()) return true;
-                }
-                
-                return read >= getLength();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-        
-        public void add(byte[] bytes, int length)
-        {
-            int space = internal.length - size;
-            
-            if (space < bytes.length) {
-                byte[] temp = new byte[Math.min(internal.length * 2, internal.length + bytes.length)];
-                System.arraycopy(internal, 0, temp, 0, size);
-                internal = temp;
-            }
-            
-            System.arraycopy(bytes, size, internal, size, length);
-            
-            size += length;
-        }
-        
-        public boolean hasNext()
-        {
-            return (position < size) || getMore();
-        }
-        
-        private int nextEnd()
-        {
-            if (!hasNext()) return -1;
-            
-            int next = position + getLength();
-            
-            return next > size ? size : next;
-        }
-        
-        public byte[] getNext()
-        {
-            byte[] bytes = new byte[size];
-            
-            int end = nextEnd();
-            
-//            System.out.println("next end: " + end);
-//            System.out.println("position: " + position);
-            
-            System.arraycopy(internal, position, bytes, 0, end - position);
-            position = end;
-            
-            return bytes;
-        }
-    }
-
-}
\ No newline at end of file
+}
@@ -22,6 +22,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import net.sf.cb2java.Settings;
 import net.sf.cb2java.Values;
 import net.sf.cb2java.types.Element;
 import net.sf.cb2java.types.Group;
@@ -79,7 +80,9 @@ import net.sf.cb2xml.sablecc.parser.Parser;
  */
 class CopybookAnalyzer extends DepthFirstAdapter
 {
-    final Values values = new Values();
+    final Values values;
+    
+    private final Settings settings;
     
     private Parser parser;
     private Item document;
@@ -94,7 +97,21 @@ class CopybookAnalyzer extends DepthFirstAdapter
      */
 	CopybookAnalyzer(String copyBookName, Parser parser)
     {
-        document = new Item(values, true);
+        this(copyBookName, parser, Settings.DEFAULT);
+    }
+    
+	/**
+     * Creates a new instance with the given parser, name and settings
+     * 
+     * @param copyBookName the name to give this copybook
+     * @param parser sablecc parser instance 
+     * @param settings the settings of the copybook
+     */
+	CopybookAnalyzer(String copyBookName, Parser parser, Settings settings)
+    {
+        this.settings = Settings.Snapshot.of(settings);
+        this.values = new Values(this.settings.getEncoding());
+        document = new Item(values, this.settings, true);
         document.name = copyBookName;
         current = document;
 		this.parser = parser;
@@ -123,11 +140,13 @@ class CopybookAnalyzer extends DepthFirstAdapter
     {
         // TODO end
         walkTree(document);
+        ((Copybook) document.getElement()).freeze();
 	}
 
     private void walkTree(Item item)
     {
-        item.getElement().setSettings((Copybook) document.getElement());
+        /* bind the immutable snapshot so every parse reads the same settings */
+        item.getElement().setSettings(((Copybook) document.getElement()).getSnapshot());
         
         for (Iterator<?> i = item.children.iterator(); i.hasNext();) {
             Item child = (Item) i.next();
@@ -176,7 +195,7 @@ class CopybookAnalyzer extends DepthFirstAdapter
 	public void inAItem(AItem node)
     {
         Item prevItem = current;
-        current = new Item(values, false);
+        current = new Item(values, settings, false);
         current.level = Integer.parseInt(node.getNumberNot88().toString().trim());
         current.name = node.getDataNameOrFiller().toString().trim();
         
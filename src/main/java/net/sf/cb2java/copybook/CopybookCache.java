@@ -0,0 +1,357 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import net.sf.cb2java.Settings;
+
+/**
+ * A bounded, thread-safe cache of parsed copybooks.
+ *
+ * <p>Parsing a copybook runs the preprocessor, lexer, parser and analyzer
+ * every time, which is wasted work when the same copybook is used over
+ * and over.  Copybooks are frozen once analyzed, so a parsed copybook can
+ * be shared between threads.  The cache is keyed by a SHA-256 digest of
+ * the copybook name, its source and the settings it is parsed with, so a
+ * changed source or different settings give a different entry.
+ *
+ * <p>When the cache is full the least recently used copybook is evicted.
+ * A copybook is parsed once even if several threads ask for it at the
+ * same time; the other threads wait for the result.  Copybooks obtained
+ * from the cache are shared; they are frozen, so their setters throw an
+ * IllegalStateException and the settings always match the key.
+ */
+public class CopybookCache
+{
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * loads a copybook that is not in the cache
+     */
+    public interface Loader
+    {
+        /**
+         * loads the copybook
+         *
+         * @return the copybook as returned by CopybookParser, which is frozen
+         * @throws Exception if the copybook cannot be loaded
+         */
+        Copybook load() throws Exception;
+    }
+
+    private final int maximumSize;
+    private final Map<String, FutureTask<Copybook>> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * creates a cache holding at most the given number of copybooks
+     *
+     * @param maximumSize the maximum number of copybooks
+     */
+    public CopybookCache(final int maximumSize)
+    {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximum size must be positive: " + maximumSize);
+        }
+
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<String, FutureTask<Copybook>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FutureTask<Copybook>> eldest)
+            {
+                if (size() > CopybookCache.this.maximumSize) {
+                    evictions++;
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * returns the parsed copybook for the given source, parsing it with
+     * the given settings if it is not in the cache
+     *
+     * @param name the name of the copybook
+     * @param stream the source of the copybook, read completely but not 
+     * closed and decoded with the platform's default charset like 
+     * {@link CopybookParser#parse(String, InputStream, Settings)} does
+     * @param settings the settings to parse the copybook with
+     * @return the shared copybook
+     * @throws IOException if the source cannot be read
+     */
+    public Copybook get(final String name, InputStream stream, final Settings settings) throws IOException
+    {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+
+        for (int read; (read = stream.read(chunk)) >= 0;) {
+            buffer.write(chunk, 0, read);
+        }
+
+        final byte[] source = buffer.toByteArray();
+
+        return computeIfAbsent(key(name, source, settings), new Loader() {
+            public Copybook load()
+            {
+                return CopybookParser.parse(name, new ByteArrayInputStream(source), settings);
+            }
+        });
+    }
+
+    /**
+     * returns the parsed copybook for the given source, parsing it with
+     * the given settings if it is not in the cache
+     *
+     * @param name the name of the copybook
+     * @param source the source of the copybook
+     * @param settings the settings to parse the copybook with
+     * @return the shared copybook
+     */
+    public Copybook get(final String name, final String source, final Settings settings)
+    {
+        return computeIfAbsent(key(name, source.getBytes(UTF_8), settings), new Loader() {
+            public Copybook load()
+            {
+                return CopybookParser.parse(name, new StringReader(source), settings);
+            }
+        });
+    }
+
+    /**
+     * returns the copybook for the key, loading it with the given loader
+     * if it is not in the cache.  If another thread is already loading the
+     * copybook this call waits for it instead.  A copybook that fails to
+     * load is not cached.
+     *
+     * @param key the key of the copybook, e.g. from {@link #key}
+     * @param loader loads the copybook if it is not in the cache
+     * @return the shared copybook
+     * @throws RuntimeException if the loader fails
+     */
+    public Copybook computeIfAbsent(String key, final Loader loader)
+    {
+        FutureTask<Copybook> task;
+        boolean load = false;
+
+        synchronized (entries) {
+            task = entries.get(key);
+
+            if (task == null) {
+                task = new FutureTask<Copybook>(new Callable<Copybook>() {
+                    public Copybook call() throws Exception
+                    {
+                        return checkFrozen(loader.load());
+                    }
+                });
+                entries.put(key, task);
+                misses++;
+                load = true;
+            } else {
+                hits++;
+            }
+        }
+
+        if (load) {
+            task.run();
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for copybook " + key, e);
+        } catch (ExecutionException e) {
+            remove(key, task);
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException
+                ? (RuntimeException) cause : new RuntimeException("cannot load copybook " + key, cause);
+        }
+    }
+
+    private static Copybook checkFrozen(Copybook copybook)
+    {
+        if (copybook == null || !copybook.isFrozen()) {
+            throw new IllegalStateException("only complete, frozen copybooks can be shared through the cache");
+        }
+
+        return copybook;
+    }
+
+    /**
+     * returns the copybook for the key if it has been loaded
+     *
+     * @param key the key of the copybook
+     * @return the copybook or null if it is not in the cache or still loading
+     */
+    public Copybook getIfPresent(String key)
+    {
+        FutureTask<Copybook> task;
+
+        synchronized (entries) {
+            task = entries.get(key);
+
+            if (task == null || !task.isDone()) {
+                misses++;
+                return null;
+            }
+
+            hits++;
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void remove(String key, FutureTask<Copybook> task)
+    {
+        synchronized (entries) {
+            if (entries.get(key) == task) {
+                entries.remove(key);
+            }
+        }
+    }
+
+    /**
+     * removes all copybooks, the statistics are kept
+     */
+    public void clear()
+    {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * returns the number of copybooks in the cache, including those
+     * still loading
+     *
+     * @return the number of copybooks in the cache
+     */
+    public int size()
+    {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    public long getHits()
+    {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    public long getMisses()
+    {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    public long getEvictions()
+    {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * returns the share of lookups that found the copybook in the cache
+     *
+     * @return the hit rate between 0 and 1, 0 if there were no lookups
+     */
+    public double getHitRate()
+    {
+        synchronized (entries) {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        synchronized (entries) {
+            return "CopybookCache[size=" + entries.size() + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + "]";
+        }
+    }
+
+    /**
+     * computes the key of a copybook from its name, source and settings
+     *
+     * @param name the name of the copybook
+     * @param source the bytes of the copybook source
+     * @param settings the settings the copybook is parsed with
+     * @return the hex encoded SHA-256 digest
+     */
+    public static String key(String name, byte[] source, Settings settings)
+    {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Settings s = settings == null ? Settings.DEFAULT : settings;
+        String header = name + '\0' + s.getEncoding() + '\0' + s.getLittleEndian() + '\0'
+            + s.getFloatConversion() + '\0' + s.getSignPosition() + '\0'
+            + s.getColumnStart() + '\0' + s.getColumnEnd() + '\0';
+
+        digest.update(header.getBytes(UTF_8));
+        digest.update(source);
+
+        StringBuilder hex = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return hex.toString();
+    }
+}
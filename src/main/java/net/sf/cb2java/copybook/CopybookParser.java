@@ -25,6 +25,8 @@ import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.StringReader;
 
+import net.sf.cb2java.Settings;
+
 import net.sf.cb2xml.sablecc.lexer.Lexer;
 import net.sf.cb2xml.sablecc.lexer.LexerException;
 import net.sf.cb2xml.sablecc.node.Start;
@@ -59,6 +61,21 @@ public class CopybookParser
         return parse(name, new InputStreamReader(stream));
     }
     
+    /**
+     * Parses a copybook definition with the given settings and returns 
+     * a Copybook instance
+     * 
+     * @param name the name of the copybook.  For future use.
+     * @param stream the copybook definition's source stream
+     * @param settings the settings for the copybook and the data parsed with it
+     * 
+     * @return a copybook instance containing the parse tree for the definition
+     */
+    public static Copybook parse(String name, InputStream stream, Settings settings)
+    {        
+        return parse(name, new InputStreamReader(stream), settings);
+    }
+    
     /**
      * Parses a copybook definition and returns a Copybook instance
      * 
@@ -69,14 +86,32 @@ public class CopybookParser
      */
     public static Copybook parse(String name, Reader reader)
     {        
-        String preProcessed = CobolPreprocessor.preProcess(reader);
+        return parse(name, reader, Settings.DEFAULT);
+    }
+    
+    /**
+     * Parses a copybook definition with the given settings and returns 
+     * a Copybook instance.  The settings are copied, the copybook does 
+     * not see later changes to them.
+     * 
+     * @param name the name of the copybook.  For future use.
+     * @param reader the copybook definition's source reader
+     * @param settings the settings for the copybook and the data parsed with it
+     * 
+     * @return a copybook instance containing the parse tree for the definition
+     */
+    public static Copybook parse(String name, Reader reader, Settings settings)
+    {        
+        Settings snapshot = Settings.Snapshot.of(settings);
+        String source = read(reader);
+        String preProcessed = CobolPreprocessor.preProcess(new StringReader(source), snapshot);
         StringReader sr = new StringReader(preProcessed);
         PushbackReader pbr = new PushbackReader(sr, 1000);
         
         Lexer lexer = debug ? new DebugLexer(pbr) : new Lexer(pbr);
         
         Parser parser = new Parser(lexer);
-        CopybookAnalyzer copyBookAnalyzer = new CopybookAnalyzer(name, parser);
+        CopybookAnalyzer copyBookAnalyzer = new CopybookAnalyzer(name, parser, snapshot);
         Start ast;
         try {
 			ast = parser.parse();
@@ -89,6 +124,25 @@ public class CopybookParser
         }
         ast.apply(copyBookAnalyzer);
         
-        return copyBookAnalyzer.getDocument();
+        Copybook copybook = copyBookAnalyzer.getDocument();
+        copybook.setSource(source);
+        
+        return copybook;
+    }
+    
+    private static String read(Reader reader)
+    {
+        StringBuilder source = new StringBuilder();
+        char[] buffer = new char[4096];
+        
+        try (Reader in = reader) {
+            for (int read; (read = in.read(buffer)) >= 0;) {
+                source.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("cannot read the copybook", e);
+        }
+        
+        return source.toString();
     }
 }
\ No newline at end of file
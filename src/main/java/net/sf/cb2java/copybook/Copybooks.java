@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import net.sf.cb2java.Settings;
 
 /**
  * A map of named Copybook definitions.
@@ -24,11 +25,27 @@ public class Copybooks {
      * to Copybook instance for each given file.
      */
     public static Map<String, Copybook> readCopybooks(File[] files) throws FileNotFoundException {
+        return read(files, null);
+    }
+    
+    /*
+     * Like readCopybooks(File[]) but takes the copybooks from the given cache,
+     * parsing only those that are not in it yet.
+     */
+    public static Map<String, Copybook> readCopybooks(File[] files, CopybookCache cache) throws FileNotFoundException {
+        return read(files, cache);
+    }
+    
+    /*
+     * Parses the files, or takes them from the cache if there is one.
+     */
+    private static Map<String, Copybook> read(File[] files, CopybookCache cache) {
         Map<String, Copybook> copybooks = new TreeMap<String, Copybook>();
         for(File f:files) {
              String copybookName = copybookNameOfFile(f);
              try (FileInputStream fin = new FileInputStream(f)) {
-                copybooks.put(copybookName, CopybookParser.parse(copybookName, fin));
+                copybooks.put(copybookName, cache == null
+                    ? CopybookParser.parse(copybookName, fin) : cache.get(copybookName, fin, Settings.DEFAULT));
              } catch (IOException | RuntimeException e) {
                  throw new RuntimeException(String.format("Cannot parse copybook structure in file '%s'", f.getName()), e);
              }
@@ -43,13 +43,17 @@ class Item
     
     final Values values;
     
+    final Settings settings;
+    
     /**
      * @param analyzer
      */
-    Item(final Values values, final boolean document)
+    Item(final Values values, final Settings settings, final boolean document)
     {
         this.values = values;
+        this.settings = settings;
         this.document = document;
+        this.signPosition = settings.getSignPosition();
     }
 
     String name;
@@ -66,7 +70,7 @@ class Item
     
     boolean isAlpha;
     boolean signSeparate;
-    SignPosition signPosition = Settings.DEFAULT.getSignPosition();
+    SignPosition signPosition;
     
     String picture;
     Value value;
@@ -128,7 +132,7 @@ class Item
     
     private void createDocument()
     {
-        element = new Copybook(name, values);
+        element = new Copybook(name, values, settings);
     }
     
     private void createGroup()
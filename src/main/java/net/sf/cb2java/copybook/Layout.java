@@ -0,0 +1,340 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.sf.cb2java.data.Data;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.types.Element;
+import net.sf.cb2java.types.Leaf;
+
+/**
+ * The flattened, immutable layout of a copybook.
+ *
+ * <p>Every occurrence of every elementary item (leaf) gets an entry with
+ * its absolute offset in the record, its length, the element that
+ * decodes and encodes it and the subscripts of the OCCURS clauses it is
+ * nested in.  Entries are in record order, which is also the order in
+ * which the leaves appear in a parsed {@link net.sf.cb2java.data.Record}.
+ * Single leaves and whole records are decoded with {@link #parse(int, byte[], int)}
+ * and {@link #parseLeaves(byte[], int)} and records are encoded with
+ * {@link #write(GroupData, byte[], int)} straight from these tables.  The
+ * data tree returned by {@link Copybook#parseData(byte[])} is still built
+ * by the groups.
+ *
+ * <p>Paths name the items from the level below the copybook down to the
+ * leaf, separated by dots, with a 1-based subscript for items that occur
+ * more than once, e.g. <code>ROOT.SUB(2).E</code>.  Lookups by path
+ * ignore case.
+ *
+ * <p>Obtain an instance with {@link Copybook#getLayout()}.
+ */
+public final class Layout
+{
+    private final Copybook copybook;
+    private final int length;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final Leaf[] elements;
+    private final int[][] subscripts;
+    private final int[][] routes;
+    private final String[] paths;
+    private final Map<String, Integer> index;
+
+    /**
+     * compiles the layout of the given copybook
+     *
+     * @param copybook the copybook to compile
+     */
+    Layout(Copybook copybook)
+    {
+        Builder builder = new Builder();
+        int child = 0;
+
+        for (Element element : copybook.getChildren()) {
+            builder.add(element, "", new int[0], new int[0], child);
+            child += element.getOccurs();
+        }
+
+        int size = builder.elements.size();
+
+        this.copybook = copybook;
+        this.length = copybook.getLength();
+        this.offsets = new int[size];
+        this.lengths = new int[size];
+        this.elements = builder.elements.toArray(new Leaf[size]);
+        this.subscripts = builder.subscripts.toArray(new int[size][]);
+        this.routes = builder.routes.toArray(new int[size][]);
+        this.paths = builder.paths.toArray(new String[size]);
+
+        Map<String, Integer> index = new HashMap<String, Integer>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            offsets[i] = builder.offsets.get(i);
+            lengths[i] = elements[i].getLength();
+
+            /* the first of items with the same name wins, as in Group.indexOf() */
+            if (!index.containsKey(key(paths[i]))) {
+                index.put(key(paths[i]), i);
+            }
+        }
+
+        this.index = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * walks the element tree in record order collecting the leaves
+     */
+    private static class Builder
+    {
+        final List<Leaf> elements = new ArrayList<Leaf>();
+        final List<Integer> offsets = new ArrayList<Integer>();
+        final List<int[]> subscripts = new ArrayList<int[]>();
+        final List<int[]> routes = new ArrayList<int[]>();
+        final List<String> paths = new ArrayList<String>();
+
+        int position;
+
+        /**
+         * @param parentRoute the indices of the children leading to the parent data
+         * @param child the index of the first occurrence among the parent's data
+         */
+        void add(Element element, String prefix, int[] parentSubscripts, int[] parentRoute, int child)
+        {
+            int occurs = element.getOccurs();
+
+            for (int i = 0; i < occurs; i++) {
+                String path = prefix + element.getName();
+                int[] subs = parentSubscripts;
+                int[] route = new int[parentRoute.length + 1];
+                System.arraycopy(parentRoute, 0, route, 0, parentRoute.length);
+                route[parentRoute.length] = child + i;
+
+                if (occurs > 1) {
+                    path += "(" + (i + 1) + ")";
+                    subs = new int[parentSubscripts.length + 1];
+                    System.arraycopy(parentSubscripts, 0, subs, 0, parentSubscripts.length);
+                    subs[parentSubscripts.length] = i;
+                }
+
+                if (element instanceof Leaf) {
+                    elements.add((Leaf) element);
+                    offsets.add(position);
+                    subscripts.add(subs);
+                    routes.add(route);
+                    paths.add(path);
+                    position += element.getLength();
+                } else {
+                    int next = 0;
+
+                    for (Element grandChild : element.getChildren()) {
+                        add(grandChild, path + ".", subs, route, next);
+                        next += grandChild.getOccurs();
+                    }
+                }
+            }
+        }
+    }
+
+    private static String key(String path)
+    {
+        return path.toUpperCase(Locale.ENGLISH);
+    }
+
+    /**
+     * returns the length of a complete record
+     *
+     * @return the length of a complete record
+     */
+    public int getRecordLength()
+    {
+        return length;
+    }
+
+    /**
+     * returns the number of leaves
+     *
+     * @return the number of leaves
+     */
+    public int size()
+    {
+        return elements.length;
+    }
+
+    /**
+     * returns the index of the leaf with the given path.  Where items
+     * in a group share a name, the path refers to the first of them.
+     *
+     * @param path the path of the leaf, e.g. <code>ROOT.SUB(2).E</code>
+     * @return the index of the leaf or -1 if there is no such leaf
+     */
+    public int indexOf(String path)
+    {
+        Integer i = index.get(key(path));
+        return i == null ? -1 : i.intValue();
+    }
+
+    /**
+     * returns the offset of the leaf from the start of the record
+     *
+     * @param leaf the index of the leaf
+     * @return the offset of the leaf from the start of the record
+     */
+    public int getOffset(int leaf)
+    {
+        return offsets[leaf];
+    }
+
+    /**
+     * returns the number of bytes of the leaf
+     *
+     * @param leaf the index of the leaf
+     * @return the number of bytes of the leaf
+     */
+    public int getLength(int leaf)
+    {
+        return lengths[leaf];
+    }
+
+    /**
+     * returns the element that decodes and encodes the leaf
+     *
+     * @param leaf the index of the leaf
+     * @return the element of the leaf
+     */
+    public Leaf getElement(int leaf)
+    {
+        return elements[leaf];
+    }
+
+    /**
+     * returns the path of the leaf
+     *
+     * @param leaf the index of the leaf
+     * @return the path of the leaf
+     */
+    public String getPath(int leaf)
+    {
+        return paths[leaf];
+    }
+
+    /**
+     * returns the zero based subscripts of the OCCURS clauses the
+     * leaf is nested in, outermost first
+     *
+     * @param leaf the index of the leaf
+     * @return a copy of the subscripts of the leaf
+     */
+    public int[] getSubscripts(int leaf)
+    {
+        return subscripts[leaf].clone();
+    }
+
+    /**
+     * decodes a single leaf of the record in the given buffer
+     *
+     * @param leaf the index of the leaf
+     * @param record the buffer holding the record
+     * @param offset the position of the record in the buffer
+     * @return the data of the leaf
+     */
+    public Data parse(int leaf, byte[] record, int offset)
+    {
+        return elements[leaf].parse(record, offset + offsets[leaf]);
+    }
+
+    /**
+     * decodes a single leaf of the record in the given buffer
+     *
+     * @param path the path of the leaf
+     * @param record the buffer holding the record
+     * @param offset the position of the record in the buffer
+     * @return the data of the leaf
+     * @throws IllegalArgumentException if there is no leaf with the path
+     */
+    public Data parse(String path, byte[] record, int offset)
+    {
+        return parse(leaf(path), record, offset);
+    }
+
+    /**
+     * decodes all leaves of the record in the given buffer, in record order
+     *
+     * @param record the buffer holding the record
+     * @param offset the position of the record in the buffer
+     * @return the data of all leaves
+     */
+    public Data[] parseLeaves(byte[] record, int offset)
+    {
+        Data[] leaves = new Data[elements.length];
+
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = elements[i].parse(record, offset + offsets[i]);
+        }
+
+        return leaves;
+    }
+
+    /**
+     * encodes the leaves of the given record data into the buffer.  The
+     * data of each leaf is found by its position among the children, 
+     * without matching names.
+     *
+     * @param data a record of the copybook of this layout
+     * @param record the buffer to write to
+     * @param offset the position of the record in the buffer
+     * @throws IllegalArgumentException if the data is not a record of 
+     * the copybook
+     */
+    public void write(GroupData data, byte[] record, int offset)
+    {
+        if (data.getDefinition() != copybook) {
+            throw new IllegalArgumentException(data.getName() + " is not a record of " + copybook.getName());
+        }
+
+        for (int i = 0; i < elements.length; i++) {
+            int[] route = routes[i];
+            Data leaf = data;
+
+            for (int r = 0; r < route.length; r++) {
+                leaf = leaf.getChildren().get(route[r]);
+            }
+
+            Object value = leaf.getValue();
+            elements[i].validate(value);
+            elements[i].toBytes(value, record, offset + offsets[i]);
+        }
+    }
+
+    private int leaf(String path)
+    {
+        int leaf = indexOf(path);
+
+        if (leaf < 0) {
+            throw new IllegalArgumentException("no element with path '" + path + "'");
+        }
+
+        return leaf;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.data.Record;
+
+/**
+ * Random access to the records of a file of fixed length records.
+ *
+ * <p>Record N starts at byte <code>N * copybook.getLength()</code>.  The
+ * file is memory mapped in segments of whole records, each smaller than
+ * 2 GB, so files of any size are supported.  Bytes at the end of the file
+ * that do not make up a complete record are ignored.
+ *
+ * <p>Instances can be shared between threads.  The mapping is released by
+ * the garbage collector, closing the file only releases the channel.
+ */
+public class MappedRecordFile implements Closeable
+{
+    private final Copybook copybook;
+    private final FileChannel channel;
+    private final int length;
+    private final long size;
+    private final int recordsPerSegment;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * maps the given file
+     *
+     * @param copybook the copybook that defines the records
+     * @param file the file to map
+     * @throws IOException
+     */
+    public MappedRecordFile(Copybook copybook, File file) throws IOException
+    {
+        this(copybook, file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * maps the given file using segments of at most the given number of bytes
+     *
+     * @param copybook the copybook that defines the records
+     * @param file the file to map
+     * @param segmentSize the maximum size in bytes of a single mapping
+     * @throws IOException
+     */
+    MappedRecordFile(Copybook copybook, File file, int segmentSize) throws IOException
+    {
+        this.copybook = copybook;
+        this.length = copybook.getLength();
+
+        if (length <= 0) {
+            throw new IllegalArgumentException(copybook.getName() + " has no fixed record length");
+        }
+
+        this.recordsPerSegment = Math.max(1, segmentSize / length);
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+        try {
+            this.size = channel.size() / length;
+
+            int count = (int) ((size + recordsPerSegment - 1) / recordsPerSegment);
+            long segmentBytes = (long) recordsPerSegment * length;
+            segments = new MappedByteBuffer[count];
+
+            for (int i = 0; i < count; i++) {
+                long start = i * segmentBytes;
+                long end = Math.min(start + segmentBytes, size * length);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * returns the number of complete records in the file
+     *
+     * @return the number of complete records in the file
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * parses the record with the given index
+     *
+     * @param index the zero based index of the record
+     * @return the parsed record
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public Record get(long index)
+    {
+        byte[] bytes = new byte[length];
+        read(index, bytes, 0);
+        return new Record((GroupData) copybook.parse(bytes, 0));
+    }
+
+    /**
+     * copies the raw bytes of the record with the given index
+     *
+     * @param index the zero based index of the record
+     * @param destination the array to copy the bytes to
+     * @param offset the position in the array for the first byte
+     * @throws IndexOutOfBoundsException if there is no such record
+     */
+    public void read(long index, byte[] destination, int offset)
+    {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("record " + index + " of " + size);
+        }
+
+        /* duplicate so concurrent readers do not share a position */
+        ByteBuffer segment = segments[(int) (index / recordsPerSegment)].duplicate();
+        ((Buffer) segment).position((int) (index % recordsPerSegment) * length);
+        segment.get(destination, offset, length);
+    }
+
+    /**
+     * returns an iterator that parses the records in the given range
+     *
+     * @param from the index of the first record, inclusive
+     * @param to the index of the last record, exclusive
+     * @return an iterator over the records in the range
+     */
+    public Iterator<Record> iterator(final long from, final long to)
+    {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("range " + from + " to " + to + " of " + size);
+        }
+
+        return new Iterator<Record>() {
+            private long next = from;
+
+            public boolean hasNext()
+            {
+                return next < to;
+            }
+
+            public Record next()
+            {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+
+                return get(next++);
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException("the file is read only");
+            }
+        };
+    }
+
+    /**
+     * closes the underlying channel
+     */
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
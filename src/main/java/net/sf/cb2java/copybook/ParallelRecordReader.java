@@ -0,0 +1,389 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.data.Record;
+
+/**
+ * Parses a file of fixed length records on several threads.
+ *
+ * <p>Because every record has the length of the copybook, the file is
+ * split into chunks of whole records that are read and parsed
+ * independently.  At most a bounded number of chunks is in flight at any
+ * time so memory use does not depend on the size of the file.  Bytes at
+ * the end of the file that do not make up a complete record are ignored.
+ *
+ * <p>Records are handed to a {@link RecordHandler} either in file order,
+ * on the calling thread, or in completion order, on the worker threads.
+ */
+public class ParallelRecordReader
+{
+    /** the default number of records in a chunk, fewer for very long records */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    /** the largest array the VM can allocate, with room for its header */
+    private static final int MAX_CHUNK_BYTES = Integer.MAX_VALUE - 8;
+
+    /**
+     * receives the parsed records
+     */
+    public interface RecordHandler
+    {
+        /**
+         * called once for every record in the file
+         *
+         * @param index the zero based index of the record in the file
+         * @param record the parsed record
+         */
+        void handle(long index, Record record);
+    }
+
+    private final Copybook copybook;
+    private final File file;
+    private final int length;
+
+    private int chunkSize;
+    private int window = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * constructor
+     *
+     * @param copybook the copybook that defines the records
+     * @param file the file to read
+     */
+    public ParallelRecordReader(Copybook copybook, File file)
+    {
+        this.copybook = copybook;
+        this.file = file;
+        this.length = copybook.getLength();
+
+        if (length <= 0) {
+            throw new IllegalArgumentException(copybook.getName() + " has no fixed record length");
+        }
+
+        /* fewer records per chunk if the default would not fit in an array */
+        this.chunkSize = Math.max(1, Math.min(DEFAULT_CHUNK_SIZE, MAX_CHUNK_BYTES / length));
+    }
+
+    /**
+     * sets the number of records parsed by a single task.  A chunk is 
+     * read into one array, so it cannot hold more than 2GB.
+     *
+     * @param records the number of records in a chunk
+     * @throws IllegalArgumentException if the size is not positive or the
+     * chunk would not fit in an array
+     */
+    public void setChunkSize(int records)
+    {
+        if (records <= 0) {
+            throw new IllegalArgumentException("chunk size must be positive: " + records);
+        } else if ((long) records * length > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("chunk of " + records + " records of " + length 
+                + " bytes is larger than " + MAX_CHUNK_BYTES + " bytes");
+        }
+
+        this.chunkSize = records;
+    }
+
+    /**
+     * sets the maximum number of chunks being read, parsed or
+     * waiting to be handled at the same time
+     *
+     * @param chunks the maximum number of chunks in flight
+     */
+    public void setWindow(int chunks)
+    {
+        if (chunks <= 0) {
+            throw new IllegalArgumentException("window must be positive: " + chunks);
+        }
+
+        this.window = chunks;
+    }
+
+    /**
+     * reads the file on a fork-join pool sized to the number of processors
+     *
+     * @param handler the receiver of the records
+     * @param ordered whether records are handled in file order on the
+     * calling thread, otherwise on the worker threads as they are parsed
+     * @throws IOException
+     */
+    public void read(RecordHandler handler, boolean ordered) throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool();
+
+        try {
+            read(handler, ordered, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * reads the file using the given executor.  If the handler or
+     * parsing throws, the chunks that have not started are skipped and
+     * the exception is thrown once the running ones have stopped, so the
+     * handler is not called after this method returns.
+     *
+     * @param handler the receiver of the records, must be thread-safe
+     * if the records are not ordered
+     * @param ordered whether records are handled in file order on the
+     * calling thread, otherwise on the worker threads as they are parsed
+     * @param executor the executor that runs the chunk tasks
+     * @throws IOException
+     */
+    public void read(RecordHandler handler, boolean ordered, Executor executor) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long records = channel.size() / length;
+            long chunks = (records + chunkSize - 1) / chunkSize;
+
+            if (ordered) {
+                readOrdered(channel, records, chunks, handler, executor);
+            } else {
+                readUnordered(channel, records, chunks, handler, executor);
+            }
+        }
+    }
+
+    private void readOrdered(FileChannel channel, long records, long chunks,
+        RecordHandler handler, Executor executor) throws IOException
+    {
+        Deque<Chunk> pending = new ArrayDeque<Chunk>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        long submitted = 0;
+        long index = 0;
+
+        try {
+            while (submitted < chunks || !pending.isEmpty()) {
+                while (submitted < chunks && pending.size() < window) {
+                    Chunk chunk = new Chunk(channel, submitted++, records, null, stopped);
+                    FutureTask<Record[]> task = new FutureTask<Record[]>(chunk);
+                    chunk.future = task;
+                    executor.execute(task);
+                    pending.add(chunk);
+                }
+
+                for (Record record : get(pending.poll().future)) {
+                    handler.handle(index++, record);
+                }
+            }
+        } finally {
+            stop(pending, stopped);
+        }
+    }
+
+    private void readUnordered(FileChannel channel, long records, long chunks,
+        RecordHandler handler, Executor executor) throws IOException
+    {
+        CompletionService<Record[]> completion = new ExecutorCompletionService<Record[]>(executor);
+        Deque<Chunk> pending = new ArrayDeque<Chunk>();
+        AtomicBoolean stopped = new AtomicBoolean();
+        long submitted = 0;
+
+        try {
+            while (submitted < chunks || !pending.isEmpty()) {
+                while (submitted < chunks && pending.size() < window) {
+                    Chunk chunk = new Chunk(channel, submitted++, records, handler, stopped);
+                    chunk.future = completion.submit(chunk);
+                    pending.add(chunk);
+                }
+
+                Future<Record[]> done;
+
+                try {
+                    done = completion.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while reading " + file, e);
+                }
+
+                for (Iterator<Chunk> i = pending.iterator(); i.hasNext();) {
+                    if (i.next().future == done) {
+                        i.remove();
+                    }
+                }
+
+                get(done);
+            }
+        } finally {
+            stop(pending, stopped);
+        }
+    }
+
+    private Record[] get(Future<Record[]> future) throws IOException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while reading " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        }
+    }
+
+    /**
+     * stops the chunks that are still pending when reading ends early,
+     * e.g. because the handler threw.  Chunks that have not started are
+     * skipped and the ones that have are waited for, so no chunk reads
+     * the channel or calls the handler once read() returns.
+     */
+    private static void stop(Deque<Chunk> pending, AtomicBoolean stopped)
+    {
+        stopped.set(true);
+        boolean interrupted = false;
+
+        for (Chunk chunk : pending) {
+            if (chunk.claim()) {
+                chunk.future.cancel(false);
+                continue;
+            }
+
+            while (true) {
+                try {
+                    chunk.finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * reads and parses one chunk of records
+     */
+    private class Chunk implements Callable<Record[]>
+    {
+        private final FileChannel channel;
+        private final long first;
+        private final int count;
+        private final RecordHandler handler;
+        private final AtomicBoolean stopped;
+        /** set once by whichever comes first, call() or stop() */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        /** counted down when call() has claimed the chunk and returns */
+        final CountDownLatch finished = new CountDownLatch(1);
+        /** the future running this chunk */
+        Future<Record[]> future;
+
+        /**
+         * @param handler the handler to pass the records to, or null to
+         * return them instead
+         * @param stopped set when the records are no longer wanted
+         */
+        Chunk(FileChannel channel, long chunk, long records, RecordHandler handler, AtomicBoolean stopped)
+        {
+            this.channel = channel;
+            this.first = chunk * chunkSize;
+            this.count = (int) Math.min(chunkSize, records - first);
+            this.handler = handler;
+            this.stopped = stopped;
+        }
+
+        /**
+         * claims the chunk
+         *
+         * @return whether the chunk had not been claimed, i.e. call()
+         * has not started and will not do anything
+         */
+        boolean claim()
+        {
+            return claimed.compareAndSet(false, true);
+        }
+
+        public Record[] call() throws IOException
+        {
+            if (!claim()) {
+                return null;
+            }
+
+            try {
+                return read();
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        private Record[] read() throws IOException
+        {
+            byte[] bytes = new byte[count * length];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = first * length;
+
+            /* positional reads do not touch the shared channel position */
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+
+                if (read < 0) {
+                    throw new EOFException(file + " was truncated while being read");
+                }
+            }
+
+            Record[] records = handler == null ? new Record[count] : null;
+
+            for (int i = 0; i < count && !stopped.get(); i++) {
+                Record record = new Record((GroupData) copybook.parse(bytes, i * length));
+
+                if (records == null) {
+                    handler.handle(first + i, record);
+                } else {
+                    records[i] = record;
+                }
+            }
+
+            return records;
+        }
+    }
+}
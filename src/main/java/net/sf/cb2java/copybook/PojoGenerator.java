@@ -0,0 +1,487 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import net.sf.cb2java.types.Characters;
+import net.sf.cb2java.types.Decimal;
+import net.sf.cb2java.types.Element;
+import net.sf.cb2java.types.Floating;
+import net.sf.cb2java.types.Group;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+
+/**
+ * Writes a Java class with typed fields and decode and encode methods
+ * for a copybook, for feeds whose copybooks are stable enough to be
+ * compiled into the application.
+ *
+ * <p>Groups become nested classes, items that occur more than once
+ * become arrays, integers of up to 18 digits become <code>long</code>,
+ * numbers with decimal places <code>BigDecimal</code> and alphanumeric
+ * items <code>String</code>.  With {@link #setUnscaledDecimals(boolean)}
+ * numbers with decimal places and up to 18 digits become a
+ * <code>long</code> holding the value without its decimal point, which
+ * is decoded and encoded without allocating.  FILLER items are not exposed and written
+ * with their default value.
+ *
+ * <p>Packed, binary and zoned decimal fields of up to 18 digits are
+ * decoded and encoded in the generated code itself, with calls to the
+ * static long decoders and encoders of their type and the offset,
+ * length, sign and bounds as literals.  Text, floating point numbers,
+ * numbers that do not fit in a long and blank numbers still go through
+ * the elements of the copybook.  The generated class therefore has a
+ * nested <code>Codec</code> that is bound once to the parsed copybook at
+ * run-time and checks that the copybook still matches the code.
+ *
+ * <p>Run it from the command line or a build, e.g. with the
+ * exec-maven-plugin in the generate-sources phase:
+ *
+ * <pre>
+ * java net.sf.cb2java.copybook.PojoGenerator [--unscaled-decimals] &lt;output dir&gt; &lt;package&gt; &lt;copybook&gt;...
+ * </pre>
+ *
+ * The class is named after the copybook file, e.g. <code>cust-rec.copybook</code>
+ * becomes <code>CustRec</code>.
+ */
+public class PojoGenerator
+{
+    private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "true", "false", "null"));
+
+    /**
+     * generates the classes for the copybook files given on the command line
+     *
+     * @param args optionally --unscaled-decimals, then the output directory,
+     * the package and the copybook files
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException
+    {
+        boolean unscaled = args.length > 0 && "--unscaled-decimals".equals(args[0]);
+
+        if (unscaled) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        if (args.length < 3) {
+            System.err.println("usage: PojoGenerator [--unscaled-decimals] <output dir> <package> <copybook>...");
+            System.exit(1);
+        }
+
+        File output = new File(args[0], args[1].replace('.', File.separatorChar));
+
+        if (!output.isDirectory() && !output.mkdirs()) {
+            throw new IOException("cannot create " + output);
+        }
+
+        for (int i = 2; i < args.length; i++) {
+            File file = new File(args[i]);
+            String name = file.getName().replaceFirst("\\.[^.]*$", "");
+            String className = typeName(name);
+            Copybook copybook;
+
+            try (InputStream stream = new FileInputStream(file)) {
+                copybook = CopybookParser.parse(name, stream);
+            }
+
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(
+                new File(output, className + ".java")), "UTF-8")) {
+                PojoGenerator generator = new PojoGenerator();
+                generator.setUnscaledDecimals(unscaled);
+                writer.write(generator.generate(copybook, args[1], className, file.getName()));
+            }
+        }
+    }
+
+    /** the source of the nested classes */
+    private final StringBuilder nested = new StringBuilder();
+    /** the class names in use */
+    private final Set<String> classNames = new HashSet<String>();
+    /** the descriptions of the leaves in definition order */
+    private final StringBuilder leafDescriptions = new StringBuilder();
+    /** the number of leaves seen so far */
+    private int leaves;
+    /** whether numbers with decimal places become unscaled longs */
+    private boolean unscaledDecimals;
+
+    /**
+     * whether numbers with decimal places and up to 18 digits become a
+     * <code>long</code> holding the value without its decimal point
+     * rather than a <code>BigDecimal</code>
+     *
+     * @param unscaledDecimals whether to generate unscaled longs
+     */
+    public void setUnscaledDecimals(boolean unscaledDecimals)
+    {
+        this.unscaledDecimals = unscaledDecimals;
+    }
+
+    /**
+     * writes the source of the class for the copybook
+     *
+     * @param copybook the copybook to generate the class for
+     * @param packageName the package of the class
+     * @param className the simple name of the class
+     * @param source a description of where the copybook came from
+     * @return the source of the class
+     */
+    public String generate(Copybook copybook, String packageName, String className, String source)
+    {
+        classNames.add(className);
+
+        StringBuilder body = new StringBuilder();
+        members(copybook, body, "    ");
+
+        StringBuilder out = new StringBuilder();
+
+        if (packageName.length() > 0) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+
+        out.append("import java.math.BigDecimal;\n");
+        out.append("import java.math.BigInteger;\n");
+        out.append("import net.sf.cb2java.CodePage;\n");
+        out.append("import net.sf.cb2java.copybook.Copybook;\n");
+        out.append("import net.sf.cb2java.copybook.PojoSupport;\n");
+        out.append("import net.sf.cb2java.types.Binary;\n");
+        out.append("import net.sf.cb2java.types.Decimal;\n");
+        out.append("import net.sf.cb2java.types.Leaf;\n");
+        out.append("import net.sf.cb2java.types.Numeric;\n");
+        out.append("import net.sf.cb2java.types.Packed;\n");
+        out.append("import net.sf.cb2java.types.SignPosition;\n\n");
+        out.append("/**\n * Generated by cb2java from ").append(source).append(", do not edit.\n */\n");
+        out.append("public class ").append(className).append(" {\n\n");
+        out.append("    /** the length of a record */\n");
+        out.append("    public static final int LENGTH = ").append(copybook.getLength()).append(";\n\n");
+        out.append("    private static final String[] LEAVES = {").append(leafDescriptions).append("};\n\n");
+        out.append(body);
+        out.append("\n    /**\n     * decodes and encodes records, bound to the copybook at run-time\n     */\n");
+        out.append("    public static final class Codec {\n");
+        out.append("        private final Leaf[] e;\n");
+        out.append("        private final CodePage p;\n\n");
+        out.append("        public Codec(Copybook copybook) {\n");
+        out.append("            e = PojoSupport.leaves(copybook, LEAVES, LENGTH);\n");
+        out.append("            p = PojoSupport.codePage(copybook);\n");
+        out.append("        }\n\n");
+        out.append("        public ").append(className).append(" decode(byte[] b, int o) {\n");
+        out.append("            ").append(className).append(" r = new ").append(className).append("();\n");
+        out.append("            r.decode(e, p, b, o);\n");
+        out.append("            return r;\n");
+        out.append("        }\n\n");
+        out.append("        public void encode(").append(className).append(" r, byte[] b, int o) {\n");
+        out.append("            r.encode(e, p, b, o);\n");
+        out.append("        }\n");
+        out.append("    }\n");
+        out.append(nested);
+        out.append("}\n");
+
+        return out.toString();
+    }
+
+    /**
+     * writes the fields and the decode and encode methods of a group
+     */
+    private void members(Group group, StringBuilder out, String indent)
+    {
+        StringBuilder fields = new StringBuilder();
+        StringBuilder init = new StringBuilder();
+        StringBuilder decode = new StringBuilder();
+        StringBuilder encode = new StringBuilder();
+        Set<String> fieldNames = new HashSet<String>();
+        boolean longs = false;
+        int offset = 0;
+
+        for (Element child : group.getChildren()) {
+            int occurs = child.getOccurs();
+            int length = child.getLength();
+            boolean filler = "FILLER".equalsIgnoreCase(child.getName());
+            String field = filler ? null : unique(fieldName(child.getName()), fieldNames);
+            String at = "o + " + offset;
+            String target = "this." + field;
+            String inner = indent + "    ";
+
+            if (occurs > 1) {
+                at += " + i * " + length;
+                target = "this." + field + "[i]";
+                inner += "    ";
+                decode.append(indent).append("    for (int i = 0; i < ").append(occurs).append("; i++) {\n");
+                encode.append(indent).append("    for (int i = 0; i < ").append(occurs).append("; i++) {\n");
+            }
+
+            if (child instanceof Group) {
+                String type = unique(typeName(child.getName()), classNames);
+                StringBuilder members = new StringBuilder();
+                members((Group) child, members, "    ");
+                nested.append("\n    public static class ").append(type).append(" {\n\n")
+                    .append(members).append("    }\n");
+
+                if (filler) {
+                    field = unique("filler", fieldNames);
+                    target = "this." + field + (occurs > 1 ? "[i]" : "");
+                }
+
+                if (occurs > 1) {
+                    fields.append(indent).append("public final ").append(type).append("[] ").append(field)
+                        .append(" = new ").append(type).append("[").append(occurs).append("];\n");
+                    init.append(indent).append("    for (int i = 0; i < ").append(occurs).append("; i++) {\n")
+                        .append(indent).append("        ").append(field).append("[i] = new ").append(type).append("();\n")
+                        .append(indent).append("    }\n");
+                } else {
+                    fields.append(indent).append("public final ").append(type).append(" ").append(field)
+                        .append(" = new ").append(type).append("();\n");
+                }
+
+                decode.append(inner).append(target).append(".decode(e, p, b, ").append(at).append(");\n");
+                encode.append(inner).append(target).append(".encode(e, p, b, ").append(at).append(");\n");
+            } else {
+                int index = leaf((Leaf) child);
+                String leaf = "e[" + index + "]";
+                Kind kind = kind((Leaf) child);
+
+                if (filler) {
+                    encode.append(inner).append("PojoSupport.putValue(").append(leaf).append(", null, b, ")
+                        .append(at).append(");\n");
+                } else {
+                    if (kind == Kind.UNSCALED) {
+                        fields.append(indent).append("/** without its decimal point, ")
+                            .append(((Numeric) child).decimalPlaces()).append(" decimal places */\n");
+                    }
+
+                    fields.append(indent).append("public ").append(kind.type);
+
+                    if (occurs > 1) {
+                        fields.append("[] ").append(field).append(" = new ").append(kind.type).append("[")
+                            .append(occurs).append("];\n");
+                    } else {
+                        fields.append(" ").append(field).append(";\n");
+                    }
+
+                    String decoder = kind == Kind.LONG || kind == Kind.UNSCALED || kind == Kind.DECIMAL
+                        ? CodecGenerator.decoder(child, at, true) : null;
+
+                    if (decoder == null) {
+                        decode.append(inner).append(target).append(" = ").append(kind.decode).append("(")
+                            .append(leaf).append(", b, ").append(at).append(");\n");
+                    } else {
+                        numeric(decode, (Numeric) child, kind, decoder, leaf, target, at, inner);
+                        longs = true;
+                    }
+
+                    if (decoder == null || kind == Kind.DECIMAL) {
+                        encode.append(inner).append(kind.encode).append("(").append(leaf).append(", ")
+                            .append(target).append(", b, ").append(at).append(");\n");
+                    } else {
+                        unscaled(encode, (Numeric) child, leaf, target, at, inner);
+                    }
+                }
+            }
+
+            if (occurs > 1) {
+                decode.append(indent).append("    }\n");
+                encode.append(indent).append("    }\n");
+            }
+
+            offset += occurs * length;
+        }
+
+        out.append(fields);
+
+        if (init.length() > 0) {
+            out.append("\n").append(indent).append("{\n").append(init).append(indent).append("}\n");
+        }
+
+        out.append("\n").append(indent).append("void decode(Leaf[] e, CodePage p, byte[] b, int o) {\n");
+
+        if (longs) {
+            out.append(indent).append("    long u;\n");
+        }
+
+        out.append(decode).append(indent).append("}\n");
+        out.append("\n").append(indent).append("void encode(Leaf[] e, CodePage p, byte[] b, int o) {\n")
+            .append(encode).append(indent).append("}\n");
+    }
+
+    /**
+     * writes the decoding of a number that its type decodes into a long.
+     * Blanks and values that do not fit are decoded by the element.  
+     * Zoned decimals are only decoded directly in a single byte encoding.
+     */
+    private static void numeric(StringBuilder decode, Numeric field, Kind kind, String decoder, 
+        String leaf, String target, String at, String indent)
+    {
+        String value = kind == Kind.DECIMAL ? "BigDecimal.valueOf(u, " + field.decimalPlaces() + ")" : "u";
+
+        if (field instanceof Decimal) {
+            decoder = "p == null ? Numeric.UNDECODABLE : " + decoder;
+        }
+
+        decode.append(indent).append("u = ").append(decoder).append(";\n");
+        decode.append(indent).append(target).append(" = u != Numeric.UNDECODABLE ? ").append(value)
+            .append(" : ").append(kind.decode).append("(").append(leaf).append(", b, ").append(at).append(");\n");
+    }
+
+    /**
+     * writes the encoding of a long into a number, with the bounds of 
+     * the field as literals.  The element only reports values out of 
+     * range and encodes zoned decimals in a multi-byte encoding.
+     */
+    private static void unscaled(StringBuilder encode, Numeric field, String leaf, String target, 
+        String at, String indent)
+    {
+        String check = CodecGenerator.outOfRange(field, target);
+        String encoder = CodecGenerator.encoder(field, target, at);
+
+        if (check != null) {
+            encode.append(indent).append("if (").append(check).append(") {\n");
+            encode.append(indent).append("    ((Numeric) ").append(leaf).append(").validateUnscaled(")
+                .append(target).append(");\n");
+            encode.append(indent).append("}\n");
+        }
+
+        if (field instanceof Decimal) {
+            encode.append(indent).append("if (p == null) {\n");
+            encode.append(indent).append("    ((Numeric) ").append(leaf).append(").toBytesUnscaled(")
+                .append(target).append(", b, ").append(at).append(");\n");
+            encode.append(indent).append("} else {\n");
+            encode.append(indent).append("    ").append(encoder).append(";\n");
+            encode.append(indent).append("}\n");
+        } else {
+            encode.append(indent).append(encoder).append(";\n");
+        }
+    }
+
+    /**
+     * numbers a leaf definition, in the order of {@link PojoSupport#collect}
+     */
+    private int leaf(Leaf element)
+    {
+        if (leaves > 0) {
+            leafDescriptions.append(", ");
+        }
+
+        leafDescriptions.append('"').append(PojoSupport.describe(element)).append('"');
+        return leaves++;
+    }
+
+    /**
+     * how a leaf is represented in the generated class
+     */
+    private enum Kind
+    {
+        LONG("long", "PojoSupport.getLong", "PojoSupport.putLong"),
+        DECIMAL("BigDecimal", "PojoSupport.getDecimal", "PojoSupport.putValue"),
+        UNSCALED("long", "PojoSupport.getUnscaled", "PojoSupport.putUnscaled"),
+        FLOATING("BigDecimal", "(BigDecimal) PojoSupport.getValue", "PojoSupport.putValue"),
+        INTEGER("BigInteger", "(BigInteger) PojoSupport.getValue", "PojoSupport.putValue"),
+        STRING("String", "(String) PojoSupport.getValue", "PojoSupport.putValue"),
+        OBJECT("Object", "PojoSupport.getValue", "PojoSupport.putValue");
+
+        final String type;
+        final String decode;
+        final String encode;
+
+        Kind(String type, String decode, String encode)
+        {
+            this.type = type;
+            this.decode = decode;
+            this.encode = encode;
+        }
+    }
+
+    private Kind kind(Leaf leaf)
+    {
+        if (leaf instanceof Numeric) {
+            Numeric numeric = (Numeric) leaf;
+            boolean fits = numeric.digits() <= Numeric.MAX_LONG_DIGITS;
+
+            if (numeric.decimalPlaces() > 0) {
+                return unscaledDecimals && fits ? Kind.UNSCALED : Kind.DECIMAL;
+            }
+
+            return fits ? Kind.LONG : Kind.INTEGER;
+        } else if (leaf instanceof Floating) {
+            return Kind.FLOATING;
+        } else if (leaf instanceof Characters) {
+            return Kind.STRING;
+        } else {
+            return Kind.OBJECT;
+        }
+    }
+
+    /**
+     * CUST-NAME becomes custName
+     */
+    static String fieldName(String name)
+    {
+        String type = typeName(name);
+        String field = Character.toLowerCase(type.charAt(0)) + type.substring(1);
+        return KEYWORDS.contains(field) ? field + "_" : field;
+    }
+
+    /**
+     * CUST-NAME becomes CustName
+     */
+    static String typeName(String name)
+    {
+        StringBuilder out = new StringBuilder();
+        boolean upper = true;
+
+        for (char c : name.toLowerCase(Locale.ENGLISH).toCharArray()) {
+            if (Character.isLetterOrDigit(c)) {
+                out.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            } else {
+                upper = true;
+            }
+        }
+
+        if (out.length() == 0 || !Character.isJavaIdentifierStart(out.charAt(0))) {
+            out.insert(0, '_');
+        }
+
+        return out.toString();
+    }
+
+    private static String unique(String name, Set<String> used)
+    {
+        String result = name;
+
+        for (int i = 2; !used.add(result); i++) {
+            result = name + i;
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import net.sf.cb2java.CodePage;
+import net.sf.cb2java.data.Data;
+import net.sf.cb2java.data.DecimalData;
+import net.sf.cb2java.data.IntegerData;
+import net.sf.cb2java.types.Binary;
+import net.sf.cb2java.types.Decimal;
+import net.sf.cb2java.types.Element;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+
+/**
+ * Field access used by the classes written by {@link PojoGenerator}.
+ *
+ * <p>Generated classes decode and encode numbers of up to 18 digits 
+ * themselves.  The fields of other types, blank numbers and numbers 
+ * that do not fit in a long go through the elements of the copybook 
+ * with these methods, so they behave exactly like the dynamic API.
+ */
+public final class PojoSupport
+{
+    private PojoSupport()
+    {
+    }
+
+    /**
+     * collects the leaf definitions of the copybook, each once, in the
+     * order the generator numbers them, and checks they match the
+     * copybook the class was generated from
+     *
+     * @param copybook the copybook to bind the generated class to
+     * @param descriptions the leaves when the class was generated, as
+     * returned by {@link #describe(Leaf)}
+     * @param length the record length when the class was generated
+     * @return the leaves
+     * @throws IllegalArgumentException if the copybook has changed
+     */
+    public static Leaf[] leaves(Copybook copybook, String[] descriptions, int length)
+    {
+        List<Leaf> leaves = new ArrayList<Leaf>();
+        collect(copybook, leaves);
+
+        boolean same = leaves.size() == descriptions.length && copybook.getLength() == length;
+
+        for (int i = 0; same && i < descriptions.length; i++) {
+            same = describe(leaves.get(i)).equals(descriptions[i]);
+        }
+
+        if (!same) {
+            throw new IllegalArgumentException(copybook.getName()
+                + " does not match the copybook the class was generated from, regenerate it");
+        }
+
+        return leaves.toArray(new Leaf[leaves.size()]);
+    }
+
+    /**
+     * returns the code page the generated code decodes and encodes zoned 
+     * decimals with
+     *
+     * @param copybook the copybook the generated class is bound to
+     * @return the code page of the copybook, or null if it is not a single 
+     * byte encoding and zoned decimals have to go through their elements
+     */
+    public static CodePage codePage(Copybook copybook)
+    {
+        CodePage codePage = CodePage.forEncoding(copybook.getEncoding());
+        return codePage.isSingleByte() ? codePage : null;
+    }
+
+    /**
+     * describes what the generated code relies on for a leaf: its name,
+     * type, position, length and decimal places, and for numbers the 
+     * sign, byte order and sign position written into the code
+     *
+     * @param leaf the definition of the field
+     * @return the description
+     */
+    static String describe(Leaf leaf)
+    {
+        int decimalPlaces = leaf instanceof Numeric ? ((Numeric) leaf).decimalPlaces() : 0;
+
+        StringBuilder description = new StringBuilder().append(leaf.getName()).append(' ')
+            .append(leaf.getClass().getSimpleName()).append(' ').append(leaf.getPosition()).append(' ')
+            .append(leaf.getLength()).append(' ').append(decimalPlaces);
+
+        if (leaf instanceof Numeric) {
+            description.append(((Numeric) leaf).signed() ? " signed" : " unsigned");
+        }
+
+        if (leaf instanceof Binary) {
+            description.append(((Binary) leaf).littleEndian() ? " little-endian" : " big-endian");
+        } else if (leaf instanceof Decimal && ((Decimal) leaf).signed()) {
+            description.append(' ').append(((Decimal) leaf).getSignPosition());
+        }
+
+        return description.toString();
+    }
+
+    static void collect(Element element, List<Leaf> leaves)
+    {
+        for (Element child : element.getChildren()) {
+            if (child instanceof Leaf) {
+                leaves.add((Leaf) child);
+            } else {
+                collect(child, leaves);
+            }
+        }
+    }
+
+    /**
+     * decodes an integer field of at most 18 digits
+     *
+     * @param element the definition of the field
+     * @param bytes the buffer holding the record
+     * @param offset the position of the field in the buffer
+     * @return the value, 0 if blank
+     */
+    public static long getLong(Leaf element, byte[] bytes, int offset)
+    {
+        return getUnscaled(element, bytes, offset);
+    }
+
+    /**
+     * decodes a numeric field of at most 18 digits without its decimal
+     * point, e.g. 12345 for 123.45 in a field with two decimal places
+     *
+     * @param element the definition of the field
+     * @param bytes the buffer holding the record
+     * @param offset the position of the field in the buffer
+     * @return the unscaled value, 0 if blank
+     */
+    public static long getUnscaled(Leaf element, byte[] bytes, int offset)
+    {
+        long unscaled = ((Numeric) element).parseUnscaled(bytes, offset);
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            return unscaled;
+        }
+
+        Data data = element.parse(bytes, offset);
+
+        if (data instanceof DecimalData) {
+            return ((DecimalData) data).getUnscaledLong();
+        }
+
+        return ((IntegerData) data).getLong();
+    }
+
+    /**
+     * decodes a numeric field with decimal places
+     *
+     * @param element the definition of the field
+     * @param bytes the buffer holding the record
+     * @param offset the position of the field in the buffer
+     * @return the value or null if blank
+     */
+    public static BigDecimal getDecimal(Leaf element, byte[] bytes, int offset)
+    {
+        Numeric numeric = (Numeric) element;
+        long unscaled = numeric.parseUnscaled(bytes, offset);
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            return BigDecimal.valueOf(unscaled, numeric.decimalPlaces());
+        }
+
+        return (BigDecimal) element.parse(bytes, offset).getValue();
+    }
+
+    /**
+     * decodes any field
+     *
+     * @param element the definition of the field
+     * @param bytes the buffer holding the record
+     * @param offset the position of the field in the buffer
+     * @return the value as returned by the data of the field
+     */
+    public static Object getValue(Leaf element, byte[] bytes, int offset)
+    {
+        return element.parse(bytes, offset).getValue();
+    }
+
+    /**
+     * validates and encodes an integer field
+     *
+     * @param element the definition of the field
+     * @param value the value to encode
+     * @param bytes the buffer to write to
+     * @param offset the position of the field in the buffer
+     */
+    public static void putLong(Leaf element, long value, byte[] bytes, int offset)
+    {
+        putUnscaled(element, value, bytes, offset);
+    }
+
+    /**
+     * validates and encodes a numeric field given without its decimal
+     * point
+     *
+     * @param element the definition of the field
+     * @param unscaled the value to encode without its decimal point
+     * @param bytes the buffer to write to
+     * @param offset the position of the field in the buffer
+     */
+    public static void putUnscaled(Leaf element, long unscaled, byte[] bytes, int offset)
+    {
+        Numeric numeric = (Numeric) element;
+        numeric.validateUnscaled(unscaled);
+        numeric.toBytesUnscaled(unscaled, bytes, offset);
+    }
+
+    /**
+     * validates and encodes any field
+     *
+     * @param element the definition of the field
+     * @param value the value to encode, null for the default value
+     * @param bytes the buffer to write to
+     * @param offset the position of the field in the buffer
+     */
+    public static void putValue(Leaf element, Object value, byte[] bytes, int offset)
+    {
+        element.validate(value);
+        element.toBytes(value, bytes, offset);
+    }
+}
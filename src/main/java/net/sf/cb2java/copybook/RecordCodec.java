@@ -0,0 +1,67 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import net.sf.cb2java.data.Record;
+
+/**
+ * Decodes and encodes whole records of a single copybook.
+ *
+ * <p>Obtain an instance with {@link CodecGenerator#forCopybook(Copybook)}.
+ */
+public interface RecordCodec
+{
+    /**
+     * parses the record at the given offset, like
+     * {@link Copybook#parseData(byte[])}
+     *
+     * @param record the buffer holding the record
+     * @param offset the position of the record in the buffer
+     * @return the parsed record
+     */
+    Record decode(byte[] record, int offset);
+
+    /**
+     * validates and writes the fields of the record into the buffer,
+     * like {@link Layout#write(net.sf.cb2java.data.GroupData, byte[], int)}
+     *
+     * @param record a record of the copybook of this codec
+     * @param output the buffer to write to
+     * @param offset the position of the record in the buffer
+     */
+    void encode(Record record, byte[] output, int offset);
+
+    /**
+     * whether this codec was generated for its copybook, rather than
+     * interpreting the element tree
+     *
+     * @return whether the codec was generated
+     */
+    boolean isGenerated();
+
+    /**
+     * why no codec could be generated for the copybook, when
+     * {@link CodecGenerator#forCopybook(Copybook)} fell back to
+     * interpreting the element tree
+     *
+     * @return the exception or error generation failed with, null if
+     * the codec was generated or the interpreter was asked for
+     */
+    Throwable getFailure();
+}
@@ -0,0 +1,101 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.data.Record;
+
+/**
+ * Lazily parses the fixed length records of a stream, one at a time.
+ *
+ * <p>Only the record returned last, a read-ahead of one record and the
+ * read window of the underlying {@link RecordReader} are held in memory
+ * so files of any size can be processed.  Closing the iterator closes
+ * the reader, which allows its use in a try-with-resources block.
+ */
+public class RecordIterator implements Iterator<Record>, Closeable
+{
+    private final Copybook copybook;
+    private final RecordReader reader;
+
+    /** the bytes of the next record or null if not read yet */
+    private byte[] next;
+    /** whether the end of the stream has been reached */
+    private boolean done;
+
+    /**
+     * constructor
+     *
+     * @param copybook the copybook that defines the records
+     * @param reader the reader to read the records from
+     */
+    RecordIterator(Copybook copybook, RecordReader reader)
+    {
+        this.copybook = copybook;
+        this.reader = reader;
+    }
+
+    public boolean hasNext()
+    {
+        if (next == null && !done) {
+            try {
+                next = reader.next();
+                done = next == null;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        return next != null;
+    }
+
+    public Record next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        byte[] bytes = next;
+        next = null;
+
+        return new Record((GroupData) copybook.parse(bytes, 0));
+    }
+
+    /**
+     * not supported
+     */
+    public void remove()
+    {
+        throw new UnsupportedOperationException("records cannot be removed from a stream");
+    }
+
+    /**
+     * closes the underlying reader
+     */
+    public void close() throws IOException
+    {
+        done = true;
+        next = null;
+        reader.close();
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads fixed length records from a channel through a single reusable
+ * buffer.
+ *
+ * <p>The buffer holds at most one read window plus the tail of a record
+ * that straddled the previous read, the consumed bytes are compacted away
+ * before the channel is read again.  Memory use therefore does not depend
+ * on the size of the input.
+ *
+ * <p>The channel is expected to be blocking.
+ */
+public class RecordReader implements Closeable
+{
+    /** the default number of bytes requested from the channel per read */
+    public static final int DEFAULT_READ_SIZE = 64 * 1024;
+
+    /**
+     * what to do with the bytes at the end of the input that do not
+     * make up a complete record
+     */
+    public enum PartialRecord
+    {
+        /** fill the record up with zero bytes and return it */
+        PAD,
+        /** ignore the bytes */
+        SKIP,
+        /** throw an EOFException */
+        FAIL
+    }
+
+    private final ReadableByteChannel channel;
+    private final int length;
+    private final PartialRecord partialRecord;
+    private final ByteBuffer buffer;
+    /** 
+     * the same buffer, used for flip() and friends which only have
+     * covariant ByteBuffer overloads from Java 9 on
+     */
+    private final Buffer view;
+
+    private boolean eof;
+    private long count;
+
+    /**
+     * creates a reader with the default read size that pads a partial
+     * final record
+     *
+     * @param channel the channel to read from
+     * @param length the length of a record, usually {@link Copybook#getLength()}
+     */
+    public RecordReader(ReadableByteChannel channel, int length)
+    {
+        this(channel, length, DEFAULT_READ_SIZE, PartialRecord.PAD);
+    }
+
+    /**
+     * constructor
+     *
+     * @param channel the channel to read from
+     * @param length the length of a record, usually {@link Copybook#getLength()}
+     * @param readSize the number of bytes to request from the channel at a time
+     * @param partialRecord how to handle a partial record at the end of the input
+     */
+    public RecordReader(ReadableByteChannel channel, int length, int readSize, PartialRecord partialRecord)
+    {
+        if (length <= 0) {
+            throw new IllegalArgumentException("record length must be positive: " + length);
+        }
+        if (readSize <= 0) {
+            throw new IllegalArgumentException("read size must be positive: " + readSize);
+        }
+
+        this.channel = channel;
+        this.length = length;
+        this.partialRecord = partialRecord;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(readSize, length));
+        this.view = buffer;
+
+        /* start out empty and in read mode */
+        view.flip();
+    }
+
+    /**
+     * returns the length of the records
+     *
+     * @return the length of the records
+     */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * returns the number of records read so far
+     *
+     * @return the number of records read so far
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * reads the next record into the given array
+     *
+     * @param record the array to fill, at least {@link #getLength()} long
+     * @return whether a record was read, false at the end of the input
+     * @throws EOFException if the input ends with a partial record
+     * and the reader is configured to fail
+     * @throws IOException
+     */
+    public boolean read(byte[] record) throws IOException
+    {
+        return read(record, 0);
+    }
+
+    /**
+     * reads the next record into the given array at the given offset
+     *
+     * @param record the array to fill
+     * @param offset the position in the array for the first byte of the record
+     * @return whether a record was read, false at the end of the input
+     * @throws EOFException if the input ends with a partial record
+     * and the reader is configured to fail
+     * @throws IOException
+     */
+    public boolean read(byte[] record, int offset) throws IOException
+    {
+        fill();
+
+        int remaining = buffer.remaining();
+
+        if (remaining >= length) {
+            buffer.get(record, offset, length);
+            count++;
+            return true;
+        } else if (remaining == 0) {
+            return false;
+        }
+
+        switch (partialRecord) {
+        case PAD:
+            buffer.get(record, offset, remaining);
+            Arrays.fill(record, offset + remaining, offset + length, (byte) 0);
+            count++;
+            return true;
+        case SKIP:
+            view.position(view.limit());
+            return false;
+        default:
+            view.position(view.limit());
+            throw new EOFException("partial record of " + remaining + " bytes after record "
+                + count + ", expected " + length + " bytes");
+        }
+    }
+
+    /**
+     * reads the next record into a new array
+     *
+     * @return the bytes of the record or null at the end of the input
+     * @throws IOException
+     */
+    public byte[] next() throws IOException
+    {
+        byte[] record = new byte[length];
+        return read(record) ? record : null;
+    }
+
+    /**
+     * reads from the channel until the buffer holds a complete record
+     * or the input is exhausted
+     */
+    private void fill() throws IOException
+    {
+        while (buffer.remaining() < length && !eof) {
+            buffer.compact();
+
+            try {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                }
+            } finally {
+                view.flip();
+            }
+        }
+    }
+
+    /**
+     * closes the underlying channel
+     */
+    public void close() throws IOException
+    {
+        eof = true;
+        view.clear().flip();
+        channel.close();
+    }
+}
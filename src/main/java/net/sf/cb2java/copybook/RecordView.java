@@ -0,0 +1,323 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.copybook;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import net.sf.cb2java.types.Characters;
+import net.sf.cb2java.types.Leaf;
+import net.sf.cb2java.types.Numeric;
+
+/**
+ * A reusable view of the fields of a record in a buffer.
+ *
+ * <p>Instead of building a {@link net.sf.cb2java.data.Record} the view
+ * decodes single fields straight from the buffer it is bound to, using
+ * the offsets of the {@link Layout}.  Binding it to the next record
+ * allocates nothing, and neither do {@link #getLong(int)} and
+ * {@link #getUnscaled(int)} for packed, binary, zoned and sign separate
+ * fields of up to 18 digits.  Fields are addressed by their layout path,
+ * e.g. <code>ROOT.SUB(2).E</code>, or faster by the index returned by
+ * {@link #indexOf(String)}.
+ *
+ * <p>A view is not thread-safe; use one per thread.
+ */
+public class RecordView
+{
+    private final Layout layout;
+    /** holds the record when bound to a buffer without an accessible array */
+    private final byte[] copy;
+
+    private byte[] bytes;
+    private int offset;
+
+    /**
+     * creates an unbound view of records of the given copybook
+     *
+     * @param copybook the copybook that defines the records
+     */
+    public RecordView(Copybook copybook)
+    {
+        this.layout = copybook.getLayout();
+        this.copy = new byte[layout.getRecordLength()];
+    }
+
+    /**
+     * binds the view to the record at the start of the given array
+     *
+     * @param record the bytes of the record, not copied
+     * @return this view
+     */
+    public RecordView bind(byte[] record)
+    {
+        return bind(record, 0);
+    }
+
+    /**
+     * binds the view to the record at the given offset in the array
+     *
+     * @param record the buffer holding the record, not copied
+     * @param offset the position of the record in the buffer
+     * @return this view
+     */
+    public RecordView bind(byte[] record, int offset)
+    {
+        if (offset < 0 || offset + layout.getRecordLength() > record.length) {
+            throw new IndexOutOfBoundsException("record of " + layout.getRecordLength()
+                + " bytes at " + offset + " does not fit in " + record.length + " bytes");
+        }
+
+        this.bytes = record;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * binds the view to the record at the given index of the buffer.
+     * Heap buffers are used in place, the record is copied out of
+     * other buffers.  The position of the buffer is not changed.
+     *
+     * @param buffer the buffer holding the record
+     * @param index the position of the record in the buffer
+     * @return this view
+     */
+    public RecordView bind(ByteBuffer buffer, int index)
+    {
+        if (buffer.hasArray()) {
+            return bind(buffer.array(), buffer.arrayOffset() + index);
+        }
+
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = buffer.get(index + i);
+        }
+
+        return bind(copy, 0);
+    }
+
+    /**
+     * returns the layout the view resolves fields with
+     *
+     * @return the layout of the records
+     */
+    public Layout getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * returns the index of the field with the given path
+     *
+     * @param path the path of the field
+     * @return the index of the field
+     * @throws IllegalArgumentException if there is no field with the path
+     */
+    public int indexOf(String path)
+    {
+        int leaf = layout.indexOf(path);
+
+        if (leaf < 0) {
+            throw new IllegalArgumentException("no element with path '" + path + "'");
+        }
+
+        return leaf;
+    }
+
+    /**
+     * returns the value of a numeric field, without its fraction
+     *
+     * @param path the path of the field
+     * @return the whole part of the value, 0 if the field is blank
+     */
+    public long getLong(String path)
+    {
+        return getLong(indexOf(path));
+    }
+
+    /**
+     * returns the value of a numeric field, without its fraction
+     *
+     * @param leaf the index of the field
+     * @return the whole part of the value, 0 if the field is blank
+     */
+    public long getLong(int leaf)
+    {
+        Numeric numeric = numeric(leaf);
+        long unscaled = numeric.parseUnscaled(bytes, offset + layout.getOffset(leaf));
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            int places = numeric.decimalPlaces();
+            return places == 0 ? unscaled : unscaled / Numeric.powerOfTen(places);
+        }
+
+        BigDecimal value = decimal(leaf);
+        return value == null ? 0 : value.longValue();
+    }
+
+    /**
+     * returns the value of a numeric field without its decimal point,
+     * e.g. 12345 for 123.45 in a field with two decimal places
+     *
+     * @param path the path of the field
+     * @return the unscaled value, 0 if the field is blank
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long getUnscaled(String path)
+    {
+        return getUnscaled(indexOf(path));
+    }
+
+    /**
+     * returns the value of a numeric field without its decimal point,
+     * e.g. 12345 for 123.45 in a field with two decimal places
+     *
+     * @param leaf the index of the field
+     * @return the unscaled value, 0 if the field is blank
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long getUnscaled(int leaf)
+    {
+        Numeric numeric = numeric(leaf);
+        long unscaled = numeric.parseUnscaled(bytes, offset + layout.getOffset(leaf));
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            return unscaled;
+        }
+
+        BigDecimal value = decimal(leaf);
+        return value == null ? 0 : value.movePointRight(numeric.decimalPlaces()).longValueExact();
+    }
+
+    /**
+     * returns the value of a numeric field
+     *
+     * @param path the path of the field
+     * @return the value; if the field is blank, 0 for an integer field
+     * and null for a field with decimal places
+     */
+    public BigDecimal getDecimal(String path)
+    {
+        return getDecimal(indexOf(path));
+    }
+
+    /**
+     * returns the value of a numeric field
+     *
+     * @param leaf the index of the field
+     * @return the value; if the field is blank, 0 for an integer field
+     * and null for a field with decimal places
+     */
+    public BigDecimal getDecimal(int leaf)
+    {
+        Numeric numeric = numeric(leaf);
+        long unscaled = numeric.parseUnscaled(bytes, offset + layout.getOffset(leaf));
+
+        if (unscaled != Numeric.UNDECODABLE) {
+            return BigDecimal.valueOf(unscaled, numeric.decimalPlaces());
+        }
+
+        return decimal(leaf);
+    }
+
+    /**
+     * returns the value of a field as a String.  Alphanumeric fields are
+     * decoded as they are, without trimming.
+     *
+     * @param path the path of the field
+     * @return the value as a String
+     */
+    public String getString(String path)
+    {
+        return getString(indexOf(path));
+    }
+
+    /**
+     * returns the value of a field as a String.  Alphanumeric fields are
+     * decoded as they are, without trimming.
+     *
+     * @param leaf the index of the field
+     * @return the value as a String
+     */
+    public String getString(int leaf)
+    {
+        checkBound();
+        Leaf element = layout.getElement(leaf);
+
+        if (element instanceof Characters) {
+            return element.getString(bytes, offset + layout.getOffset(leaf), layout.getLength(leaf));
+        }
+
+        return String.valueOf(getValue(leaf));
+    }
+
+    /**
+     * returns the value of a field as its natural Java type, like
+     * {@link net.sf.cb2java.data.Data#getValue()}
+     *
+     * @param path the path of the field
+     * @return the value of the field
+     */
+    public Object getValue(String path)
+    {
+        return getValue(indexOf(path));
+    }
+
+    /**
+     * returns the value of a field as its natural Java type, like
+     * {@link net.sf.cb2java.data.Data#getValue()}
+     *
+     * @param leaf the index of the field
+     * @return the value of the field
+     */
+    public Object getValue(int leaf)
+    {
+        checkBound();
+        return layout.parse(leaf, bytes, offset).getValue();
+    }
+
+    private Numeric numeric(int leaf)
+    {
+        checkBound();
+        Leaf element = layout.getElement(leaf);
+
+        if (!(element instanceof Numeric)) {
+            throw new IllegalArgumentException(layout.getPath(leaf) + " is not numeric");
+        }
+
+        return (Numeric) element;
+    }
+
+    private BigDecimal decimal(int leaf)
+    {
+        Object value = getValue(leaf);
+
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+
+        return (BigDecimal) value;
+    }
+
+    private void checkBound()
+    {
+        if (bytes == null) {
+            throw new IllegalStateException("the view is not bound to a record");
+        }
+    }
+}
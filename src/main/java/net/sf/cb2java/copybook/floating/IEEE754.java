@@ -23,12 +23,25 @@ import java.math.BigDecimal;
 public class IEEE754 implements Conversion
 {   
     public BigDecimal fromBytes(byte[] input, Precision p)
+    {
+        return fromBytes(input, 0, p);
+    }
+    
+    /**
+     * reads the bytes of the number in place from the given buffer
+     * 
+     * @param input the buffer holding the number
+     * @param offset the position of the first byte of the number
+     * @param p the precision of the number
+     * @return the number as a BigDecimal
+     */
+    public BigDecimal fromBytes(byte[] input, int offset, Precision p)
     {
         long bits = 0;
                 
         int shift = 0; 
-        for (int i = 0; i < input.length; i++) { 
-            bits |= ((long)(0xFF & input[i])) << shift; 
+        for (int i = 0; i < p.bytes; i++) { 
+            bits |= ((long)(0xFF & input[offset + i])) << shift; 
             shift += 8;
         }
                 
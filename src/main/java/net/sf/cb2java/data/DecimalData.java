@@ -19,11 +19,17 @@
 package net.sf.cb2java.data;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import net.sf.cb2java.types.Numeric;
 
 public class DecimalData extends NumericData {
 	
+    /** the unscaled value if compact, so it can be read and written without allocating */
+    private long unscaled;
+    /** the value if not compact, otherwise the value as a BigDecimal once it has been asked for */
     private BigDecimal data;
+    /** whether the value is held in unscaled with the scale of the definition */
+    private boolean compact;
     private int roundingMode = BigDecimal.ROUND_HALF_UP;
     
     public DecimalData(final Numeric definition) {
@@ -35,17 +41,76 @@ public class DecimalData extends NumericData {
     }
     
     public float getFloat() {
-        return data == null ? 0 : data.floatValue();
+        BigDecimal value = getBigDecimal();
+        return value == null ? 0 : value.floatValue();
     }
     
     public double getDouble() {
-        return data == null ? 0 : data.doubleValue();
+        if (compact && Math.abs(unscaled) < (1L << 53) && scale() <= Numeric.MAX_LONG_DIGITS) {
+            /* both operands are exact, so the quotient is correctly rounded */
+            return unscaled / (double) Numeric.powerOfTen(scale());
+        }
+        
+        BigDecimal value = getBigDecimal();
+        return value == null ? 0 : value.doubleValue();
     }
     
     public BigDecimal getBigDecimal() {
+        if (compact && data == null) {
+            data = BigDecimal.valueOf(unscaled, scale());
+        }
+        
         return data;
     }
     
+    /**
+     * returns the value without its decimal point, e.g. 12345 for 
+     * 123.45 in a field with two decimal places, without allocating 
+     * if it was set or parsed as a long
+     * 
+     * @return the unscaled value, 0 if there is no value
+     * @throws ArithmeticException if the value does not fit in a long
+     */
+    public long getUnscaledLong() {
+        if (compact) {
+            return unscaled;
+        }
+        
+        return data == null ? 0 : data.setScale(scale(), RoundingMode.valueOf(roundingMode)).movePointRight(scale()).longValueExact();
+    }
+    
+    /**
+     * validates and sets the value without its decimal point without 
+     * allocating
+     * 
+     * @param unscaled the value without its decimal point
+     */
+    public void setUnscaledLong(long unscaled) {
+        setUnscaledLong(unscaled, true);
+    }
+    
+    public void setUnscaledLong(long unscaled, boolean validate) {
+        if (validate) {
+            ((Numeric) getDefinition()).validateUnscaled(unscaled);
+        }
+        this.unscaled = unscaled;
+        this.data = null;
+        this.compact = true;
+    }
+    
+    /**
+     * whether the value is held as a long
+     * 
+     * @return whether getUnscaledLong() can return the value without allocating
+     */
+    public boolean isCompact() {
+        return compact;
+    }
+    
+    private int scale() {
+        return ((Numeric) getDefinition()).decimalPlaces();
+    }
+    
     @Override
     protected void setValueImpl(Object data) {
         setValue((BigDecimal) data, true);
@@ -71,6 +136,7 @@ public class DecimalData extends NumericData {
             validate(data);
         }
         this.data = data;
+        this.compact = false;
     }
     
     @Override
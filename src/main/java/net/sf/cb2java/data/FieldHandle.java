@@ -0,0 +1,182 @@
+/**
+ *    cb2java - Dynamic COBOL copybook parser for Java.
+ *    Copyright (C) 2006 James Watson
+ *
+ *    This program is free software; you can redistribute it and/or modify
+ *    it under the terms of the GNU General Public License as published by
+ *    the Free Software Foundation; either version 1, or (at your option)
+ *    any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU General Public License for more details.
+ *
+ *    You should have received a copy of the GNU General Public License
+ *    along with this program; if not, write to the Free Software
+ *    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package net.sf.cb2java.data;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.sf.cb2java.types.Element;
+import net.sf.cb2java.types.Group;
+
+/**
+ * A field path resolved once against a definition, so the field can be
+ * looked up in any record of that definition without searching by name.
+ * 
+ * <p>Paths name the items from the level below the definition down to 
+ * the field, separated by dots, with a 1-based subscript for every item
+ * that occurs more than once and for no other item, e.g. 
+ * <code>CUST.ADDR(3).ZIP</code>, the same paths as those of 
+ * {@link net.sf.cb2java.copybook.Layout}.  Names are matched irrespective 
+ * of case, the first item with a name wins.
+ * 
+ * <p>Handles are immutable and can be shared between threads.  Usually
+ * they are created with {@link net.sf.cb2java.copybook.Copybook#compile(String)}.
+ */
+public final class FieldHandle {
+    
+    private static final Pattern SEGMENT = Pattern.compile("\\s*([^\\s().]+)\\s*(?:\\(\\s*(\\d+)\\s*\\))?\\s*");
+    
+    private final Group definition;
+    private final String path;
+    private final int[] indices;
+    private final Element element;
+    private final int offset;
+    
+    private FieldHandle(Group definition, String path, int[] indices, Element element, int offset) {
+        this.definition = definition;
+        this.path = path;
+        this.indices = indices;
+        this.element = element;
+        this.offset = offset;
+    }
+    
+    /**
+     * resolves the path against the given definition
+     * 
+     * @param definition the group the path starts from, usually a copybook
+     * @param path the path of the field
+     * @return the handle of the field
+     * @throws IllegalArgumentException if the path cannot be resolved
+     */
+    public static FieldHandle compile(Group definition, String path) {
+        String[] segments = path.split("\\.", -1);
+        int[] indices = new int[segments.length];
+        Element current = definition;
+        int offset = 0;
+        
+        for (int s = 0; s < segments.length; s++) {
+            Matcher matcher = SEGMENT.matcher(segments[s]);
+            
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("invalid path '" + path + "'");
+            } else if (!(current instanceof Group)) {
+                throw new IllegalArgumentException(current.getName() + " in '" + path + "' is not a group");
+            }
+            
+            String name = matcher.group(1);
+            int subscript = matcher.group(2) == null ? 0 : Integer.parseInt(matcher.group(2));
+            int index = 0;
+            Element child = null;
+            
+            for (Element candidate : current.getChildren()) {
+                if (candidate.getName().equalsIgnoreCase(name)) {
+                    child = candidate;
+                    break;
+                }
+                
+                index += candidate.getOccurs();
+                offset += candidate.getOccurs() * candidate.getLength();
+            }
+            
+            if (child == null) {
+                throw new IllegalArgumentException("no element " + name + " in '" + path + "'");
+            } else if (child.getOccurs() > 1 && subscript == 0) {
+                throw new IllegalArgumentException(name + " in '" + path + "' occurs " 
+                    + child.getOccurs() + " times and needs a subscript");
+            } else if (child.getOccurs() <= 1 && matcher.group(2) != null) {
+                throw new IllegalArgumentException(name + " in '" + path + "' does not occur more than once" 
+                    + " and cannot have a subscript");
+            } else if (subscript > child.getOccurs() || matcher.group(2) != null && subscript < 1) {
+                throw new IllegalArgumentException("subscript " + subscript + " of " + name + " in '" 
+                    + path + "' is out of range");
+            }
+            
+            if (subscript > 1) {
+                index += subscript - 1;
+                offset += (subscript - 1) * child.getLength();
+            }
+            
+            indices[s] = index;
+            current = child;
+        }
+        
+        return new FieldHandle(definition, path, indices, current, offset);
+    }
+    
+    /**
+     * returns the path the handle was compiled from
+     * 
+     * @return the path of the field
+     */
+    public String getPath() {
+        return path;
+    }
+    
+    /**
+     * returns the definition the path was resolved against
+     * 
+     * @return the definition the path starts from
+     */
+    public Group getDefinition() {
+        return definition;
+    }
+    
+    /**
+     * returns the element of the field
+     * 
+     * @return the element of the field
+     */
+    public Element getElement() {
+        return element;
+    }
+    
+    /**
+     * returns the offset of the field from the start of the data of 
+     * the definition
+     * 
+     * @return the offset of the field
+     */
+    public int getOffset() {
+        return offset;
+    }
+    
+    /**
+     * returns the field from the given data
+     * 
+     * @param data data of the definition the handle was compiled for
+     * @return the field
+     */
+    Data get(GroupData data) {
+        if (data.getDefinition() != definition) {
+            throw new IllegalArgumentException("'" + path + "' was not compiled for " + data.getName());
+        }
+        
+        Data result = data;
+        
+        for (int i = 0; i < indices.length; i++) {
+            result = result.getChildren().get(indices[i]);
+        }
+        
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -59,18 +59,32 @@ public class GroupData extends Data {
      * irrespective of case
      * 
      * @param name the name of the child to look for
-     * @return the first child with the given name
-     * @throws IllegalArgumentException if no child is found
+     * @return the first child with the given name or null if
+     * there is none
      */
     public Data getChild(String name) {
-        for (Iterator<Data> i = childrenWrapper.iterator(); i.hasNext();) {
-            Data child = (Data) i.next();
-            if (child.getName().equalsIgnoreCase(name)) {
-            	return child;
-            }
+        /* the index of the definition so lazily decoded children are not touched */
+        int index = definition.indexOf(name);
+        return index < 0 ? null : childrenWrapper.get(index);
+    }
+    
+    /**
+     * returns all children with the specified name irrespective 
+     * of case, e.g. every FILLER or every occurrence of an item
+     * 
+     * @param name the name of the children to look for
+     * @return the children with the given name in data order, 
+     * empty if there are none
+     */
+    public List<Data> getChildren(String name) {
+        int[] indices = definition.indicesOf(name);
+        List<Data> result = new ArrayList<Data>(indices.length);
+        
+        for (int i = 0; i < indices.length; i++) {
+            result.add(childrenWrapper.get(indices[i]));
         }
         
-        return null;
+        return Collections.unmodifiableList(result);
     }
     
     @Override
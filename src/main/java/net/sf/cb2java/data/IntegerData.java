@@ -30,22 +30,54 @@ import net.sf.cb2java.types.Numeric;
  */
 public class IntegerData extends NumericData {
 	
+    /** the value if compact, so it can be read and written without allocating */
+    private long value;
+    /** the value if not compact, otherwise the value as a BigInteger once it has been asked for */
     private BigInteger data;
+    /** whether the value fits in a long and is held in value */
+    private boolean compact = true;
     
     public IntegerData(Numeric definition) {
         super(definition);
     }
     
     public int getInt() {
-        return data == null ? 0 : data.intValue();
+        return (int) getLong();
     }
     
+    /**
+     * returns the value as a long, without allocating if it fits
+     * 
+     * @return the value, truncated to the low 64 bits if it does not fit
+     */
     public long getLong() {
-        return data == null ? 0 : data.longValue();
+        return compact ? value : data.longValue();
+    }
+    
+    /**
+     * validates and sets the value without allocating
+     * 
+     * @param data the new value
+     */
+    public void setLong(long data) {
+        setValue(data, true);
+    }
+    
+    /**
+     * whether the value fits in a long, so getLong() returns it exactly
+     * 
+     * @return whether the value fits in a long
+     */
+    public boolean isCompact() {
+        return compact;
     }
     
     public BigInteger getBigInteger() {
-        return data == null ? BigInteger.ZERO : data;
+        if (compact && data == null) {
+            data = BigInteger.valueOf(value);
+        }
+        
+        return data;
     }
     
     @Override
@@ -58,14 +90,27 @@ public class IntegerData extends NumericData {
     }
     
     public void setValue(long data, boolean validate) {
-        BigInteger temp = BigInteger.valueOf(data);
-        setValue(temp, validate);
+        if (validate) {
+            ((Numeric) getDefinition()).validateUnscaled(data);
+        }
+        this.value = data;
+        this.data = null;
+        this.compact = true;
     }
     
     public void setValue(BigInteger data, boolean validate) {
         if (validate) {
             validate(data);
         }
+        
+        if (data == null) {
+            this.value = 0;
+            this.compact = true;
+        } else {
+            this.compact = data.bitLength() < 64;
+            this.value = compact ? data.longValue() : 0;
+        }
+        
         this.data = data;
     }
     
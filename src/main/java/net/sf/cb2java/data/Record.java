@@ -27,6 +27,19 @@ public class Record extends GroupData {
         super(data.definition, data.children);
     }
     
+    /**
+     * returns the field the handle was compiled for, without searching
+     * by name
+     * 
+     * @param handle a handle compiled for the copybook of this record
+     * @return the field
+     * @throws IllegalArgumentException if the handle was compiled for
+     * another copybook
+     */
+    public Data get(FieldHandle handle) {
+        return handle.get(this);
+    }
+    
     /**
      * Convert the copybook data types into standard Java structures
      * and objects.
@@ -20,7 +20,6 @@ package net.sf.cb2java.types;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import net.sf.cb2java.Value;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.DecimalData;
 import net.sf.cb2java.data.IntegerData;
@@ -62,9 +61,89 @@ public class Binary extends Numeric {
         return digits;
     }
     
+    /**
+     * whether the bytes of this element are stored least significant first
+     * 
+     * @return whether the bytes are stored least significant first
+     */
+    public boolean littleEndian() {
+        return false;
+    }
+    
+    /**
+     * decodes a binary integer of at most 8 bytes without allocating
+     * 
+     * @param input the buffer holding the number
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     * @param signed whether the number is two's complement rather than unsigned
+     * @param littleEndian whether the least significant byte comes first
+     * @return the value or {@link Numeric#UNDECODABLE} if it does not fit 
+     * in a long or is Long.MIN_VALUE
+     */
+    public static long decodeLong(byte[] input, int offset, int length, boolean signed, 
+        boolean littleEndian) {
+        long value = 0;
+        
+        if (littleEndian) {
+            for (int i = length - 1; i >= 0; i--) {
+                value = (value << 8) | (input[offset + i] & 0xFF);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                value = (value << 8) | (input[offset + i] & 0xFF);
+            }
+        }
+        
+        if (length < 8) {
+            int unused = 64 - 8 * length;
+            /* shift the sign bit to the top and back to sign extend */
+            return signed ? (value << unused) >> unused : value;
+        }
+        
+        return signed || value >= 0 ? value : UNDECODABLE;
+    }
+    
+    /**
+     * encodes the low bytes of the given value as a two's complement 
+     * binary integer without allocating
+     * 
+     * @param value the value to encode
+     * @param output the buffer to write to
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     * @param littleEndian whether to write the least significant byte first
+     */
+    public static void encodeLong(long value, byte[] output, int offset, int length, 
+        boolean littleEndian) {
+        for (int i = 0; i < length; i++) {
+            output[littleEndian ? offset + i : offset + length - 1 - i] = (byte) value;
+            value >>= 8;
+        }
+    }
+    
+    @Override
+    public long parseUnscaled(byte[] input, int offset) {
+        long value = decodeLong(input, offset, length, signed(), littleEndian());
+        return value == UNDECODABLE ? UNDECODABLE : checkUnscaled(value);
+    }
+    
     @Override
-    public Data parse(byte[] input) {
-        BigInteger bigI = new BigInteger(input);
+    public Data parse(byte[] input, int offset) {
+        long value = parseUnscaled(input, offset);
+        
+        if (value != UNDECODABLE) {
+            return create(value);
+        }
+        
+        byte[] bytes = new byte[length];
+        System.arraycopy(input, offset, bytes, 0, length);
+        
+        if (littleEndian()) {
+            bytes = reverse(bytes);
+        }
+        
+        BigInteger bigI = signed() ? new BigInteger(bytes) : new BigInteger(1, bytes);
         Data data = create();
         
         if (data instanceof DecimalData) {
@@ -80,15 +159,26 @@ public class Binary extends Numeric {
 
     @Override
     public byte[] toBytes(Object data) {
-        BigInteger bigI;
+        byte[] bytes = new byte[length];
+        toBytes(data, bytes, 0);
+        return bytes;
+    }
+    
+    @Override
+    public void toBytes(Object data, byte[] output, int offset) {
+        long value = (data == null) ? 0 : getUnscaledLong(data);
         
-        if (data == null) {
-            bigI = BigInteger.ZERO;
-        } else {
-            bigI = getUnscaled(data);
+        if (value == UNDECODABLE) {
+            /* the low 64 bits, which is all that fits in 8 bytes anyway */
+            value = getUnscaled(data).longValue();
         }
         
-        return getSettings().getValues().LOW_VALUES.fill(bigI.toByteArray(), getLength(), Value.LEFT);
+        encodeLong(value, output, offset, length, littleEndian());
+    }
+    
+    @Override
+    public void toBytesUnscaled(long unscaled, byte[] output, int offset) {
+        encodeLong(unscaled, output, offset, length, littleEndian());
     }
     
     /**
@@ -120,14 +210,8 @@ public class Binary extends Numeric {
         }
         
         @Override
-        public byte[] toBytes(Object data) {
-            byte[] bytes = super.toBytes(data);
-            return getSettings().getLittleEndian() ? reverse(bytes) : bytes;
-        }
-        
-        @Override
-        public Data parse(byte[] input) {
-            return super.parse(getSettings().getLittleEndian() ? reverse(input) : input);
+        public boolean littleEndian() {
+            return getSettings().getLittleEndian();
         }
     }
 }
\ No newline at end of file
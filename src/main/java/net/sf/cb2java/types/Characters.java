@@ -18,6 +18,8 @@
  */
 package net.sf.cb2java.types;
 
+import java.util.Arrays;
+import net.sf.cb2java.CodePage;
 import net.sf.cb2java.Value;
 import net.sf.cb2java.data.CharData;
 import net.sf.cb2java.data.Data;
@@ -46,12 +48,18 @@ public class Characters extends Leaf {
     }
     
     @Override
-    public Data parse(byte[] bytes) {
+    public Data parse(byte[] bytes, int offset) {
         CharData data = (CharData) create();
-        data.setValue(getString(bytes));
+        data.setValue(getString(bytes, offset, getLength()));
         return data;
     }
     
+    @Override
+    public void parseInto(Data data, byte[] bytes, int offset) {
+        checkDefinition(data);
+        ((CharData) data).setValue(getString(bytes, offset, getLength()), true);
+    }
+    
     @Override
     public void validate(Object data) {
         if (data == null) return;
@@ -69,6 +77,24 @@ public class Characters extends Leaf {
         
         return getValue().fill(output, getLength(), Value.RIGHT);
     }
+    
+    /**
+     * encodes the chars straight into the buffer and pads the rest of 
+     * the field, chars that do not fit are dropped
+     */
+    @Override
+    public void toBytes(Object data, byte[] output, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (!codePage.isSingleByte()) {
+            super.toBytes(data, output, offset);
+            return;
+        }
+        
+        int length = getLength();
+        int written = data == null ? 0 : codePage.encode((String) data, output, offset, length);
+        Arrays.fill(output, offset + written, offset + length, getValue().getByte());
+    }
 
     @Override
     public Value getValue() {
@@ -20,6 +20,7 @@ package net.sf.cb2java.types;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import net.sf.cb2java.CodePage;
 import net.sf.cb2java.Value;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.DecimalData;
@@ -98,6 +99,7 @@ public class Decimal extends SignedNumeric {
                 case '7':
                 case '8':
                 case '9':
+                case '0':
                 case '{':
                 case 'A':
                 case 'B':
@@ -109,7 +111,6 @@ public class Decimal extends SignedNumeric {
                 case 'H':
                 case 'I':
                     return true;
-                case '0':
                 case '}':
                 case 'J':
                 case 'K':
@@ -185,8 +186,129 @@ public class Decimal extends SignedNumeric {
     }
     
     @Override
-    public Data parse(byte[] bytes) {
-        String input = getString(bytes).trim();
+    public Data parse(byte[] bytes, int offset) {
+        long unscaled = parseUnscaled(bytes, offset);
+        
+        if (unscaled != UNDECODABLE) {
+            return create(unscaled);
+        }
+        
+        return parseString(bytes, offset);
+    }
+    
+    /**
+     * decodes the bytes with the zoned table of the code page, 
+     * accumulating the digits in a long.  Blank fields, numbers with
+     * more than 18 digits and anything but plain digits with an 
+     * optional overpunched sign are left to the String decoder.
+     */
+    @Override
+    public long parseUnscaled(byte[] bytes, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (!codePage.isSingleByte() || (signed() && getSignPosition() == null)) {
+            return UNDECODABLE;
+        }
+        
+        long value = decodeLong(bytes, offset, getLength(), codePage, signed() ? getSignPosition() : null);
+        return value == UNDECODABLE ? UNDECODABLE : checkUnscaled(value);
+    }
+    
+    /**
+     * decodes a zoned decimal into a long without allocating.  Leading 
+     * and trailing blanks are skipped, the same bytes String.trim() 
+     * removes.
+     * 
+     * @param bytes the buffer holding the number
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     * @param codePage a single byte code page
+     * @param sign the position of the overpunched sign or null if unsigned
+     * @return the value or {@link Numeric#UNDECODABLE} if the number is
+     * blank, has more than 18 digits or is not plain zoned decimal
+     */
+    public static long decodeLong(byte[] bytes, int offset, int length, CodePage codePage, 
+        SignPosition sign) {
+        int start = offset;
+        int end = offset + length;
+        
+        while (start < end && codePage.zoned(bytes[start]) == CodePage.BLANK) {
+            start++;
+        }
+        
+        while (end > start && codePage.zoned(bytes[end - 1]) == CodePage.BLANK) {
+            end--;
+        }
+        
+        if (start == end || end - start > MAX_LONG_DIGITS) {
+            return UNDECODABLE;
+        }
+        
+        int signAt = -1;
+        
+        if (sign == SignPosition.LEADING) {
+            signAt = start;
+        } else if (sign == SignPosition.TRAILING) {
+            signAt = end - 1;
+        }
+        
+        boolean negative = false;
+        long value = 0;
+        
+        for (int i = start; i < end; i++) {
+            int zoned = codePage.zoned(bytes[i]);
+            int zone = zoned & CodePage.ZONE_MASK;
+            
+            if (zone != CodePage.DIGIT) {
+                if (i != signAt || (zone != CodePage.POSITIVE && zone != CodePage.NEGATIVE)) {
+                    return UNDECODABLE;
+                }
+                
+                negative = zone == CodePage.NEGATIVE;
+            }
+            
+            value = value * 10 + (zoned & CodePage.DIGIT_MASK);
+        }
+        
+        return negative ? -value : value;
+    }
+    
+    /**
+     * encodes a value as a zoned decimal without allocating.  Digits
+     * that do not fit in the given length are dropped.
+     * 
+     * @param value the unscaled value, not Long.MIN_VALUE
+     * @param output the buffer to write to
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     * @param codePage a single byte code page
+     * @param sign the position of the overpunched sign or null if unsigned
+     */
+    public static void encodeLong(long value, byte[] output, int offset, int length, 
+        CodePage codePage, SignPosition sign) {
+        long magnitude = Math.abs(value);
+        
+        for (int i = offset + length - 1; i >= offset; i--) {
+            output[i] = codePage.digit((int) (magnitude % 10));
+            magnitude /= 10;
+        }
+        
+        if (sign != null) {
+            overpunch(output, sign == SignPosition.LEADING ? offset : offset + length - 1, 
+                value < 0, codePage);
+        }
+    }
+    
+    private static void overpunch(byte[] output, int sign, boolean negative, CodePage codePage) {
+        output[sign] = codePage.overpunch(codePage.zoned(output[sign]) & CodePage.DIGIT_MASK, negative);
+    }
+    
+    /**
+     * decodes the bytes through a String, which handles whatever the
+     * table driven decoder does not
+     */
+    private Data parseString(byte[] bytes, int offset) {
+        String input = getString(bytes, offset, getLength()).trim();
         String s = input;
         
         if (input.length() < 1) {
@@ -205,7 +327,11 @@ public class Decimal extends SignedNumeric {
 	        	throw new IllegalStateException("undefined sign position");
 	        }
         }        
-        BigInteger big = s == null ? null : new BigInteger(s);
+        
+        return create(s == null ? null : new BigInteger(s));
+    }
+    
+    private Data create(BigInteger big) {
         Data data = create();
         
         if (data instanceof DecimalData) {
@@ -226,6 +352,66 @@ public class Decimal extends SignedNumeric {
     
     @Override
     public byte[] toBytes(Object data) {
+        byte[] bytes = new byte[getLength()];
+        toBytes(data, bytes, 0);
+        return bytes;
+    }
+    
+    /**
+     * writes the digits straight into the buffer using the digit and
+     * overpunch tables of the code page.  Leading digits that do not 
+     * fit are dropped.
+     */
+    @Override
+    public void toBytes(Object data, byte[] output, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (data == null || !codePage.isSingleByte()) {
+            byte[] bytes = toBytesString(data);
+            System.arraycopy(bytes, 0, output, offset, bytes.length);
+            return;
+        }
+        
+        int length = getLength();
+        long unscaled = getUnscaledLong(data);
+        
+        if (signed() && getSignPosition() == null) {
+            throw new IllegalStateException("undefined sign position");
+        }
+        
+        if (unscaled != UNDECODABLE) {
+            encodeLong(unscaled, output, offset, length, codePage, signed() ? getSignPosition() : null);
+            return;
+        }
+        
+        BigInteger bigI = getUnscaled(data);
+        String s = bigI.abs().toString();
+        
+        for (int i = length - 1, j = s.length() - 1; i >= 0; i--, j--) {
+            output[offset + i] = codePage.digit(j >= 0 ? s.charAt(j) - '0' : 0);
+        }
+        
+        if (signed()) {
+            overpunch(output, getSignPosition() == SignPosition.LEADING ? offset : offset + length - 1, 
+                bigI.signum() < 0, codePage);
+        }
+    }
+    
+    @Override
+    public void toBytesUnscaled(long unscaled, byte[] output, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (!codePage.isSingleByte() || unscaled == UNDECODABLE || (signed() && getSignPosition() == null)) {
+            super.toBytesUnscaled(unscaled, output, offset);
+        } else {
+            encodeLong(unscaled, output, offset, getLength(), codePage, signed() ? getSignPosition() : null);
+        }
+    }
+    
+    /**
+     * encodes the data through a String, for multi-byte encodings
+     */
+    private byte[] toBytesString(Object data) {
         if (data == null) {
             return getValue().fill(getLength());
         } 
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import net.sf.cb2java.CodePage;
 import net.sf.cb2java.Settings;
 import net.sf.cb2java.Value;
 import net.sf.cb2java.data.Data;
@@ -47,6 +48,10 @@ public abstract class Element {
     private Value value;
     /** the parent of this element */
     private Group parent;
+    /** whether the definition is complete and can no longer be modified */
+    private boolean frozen;
+    /** the tables for the encoding last used, looked up again if it changes */
+    private volatile CodePage codePage;
     
     /**
      * constructor
@@ -99,7 +104,46 @@ public abstract class Element {
      * @param input the input data
      * @return a new empty Data instance from the data supplied
      */
-    public abstract Data parse(byte[] input);
+    public Data parse(byte[] input) {
+        return parse(input, 0);
+    }
+    
+    /**
+     * creates a new Data instance from the bytes of this element
+     * starting at the given offset.  The buffer is read in place,
+     * no copy is made of the bytes belonging to this element.
+     * 
+     * @param input the buffer holding the input data
+     * @param offset the position of the first byte of this element
+     * @return a new Data instance from the data supplied
+     */
+    public abstract Data parse(byte[] input, int offset);
+    
+    /**
+     * decodes the bytes of this element into an existing Data instance
+     * created by this element, overwriting its value.  Reusing the same
+     * instances for every record avoids creating new ones.
+     * 
+     * @param data a Data instance created by this element
+     * @param input the buffer holding the input data
+     * @param offset the position of the first byte of this element
+     * @throws IllegalArgumentException if the data was not created by 
+     * this element
+     */
+    public abstract void parseInto(Data data, byte[] input, int offset);
+    
+    /**
+     * checks the data was created by this element
+     * 
+     * @param data the data to check
+     * @throws IllegalArgumentException if the data was created by 
+     * another element
+     */
+    protected final void checkDefinition(Data data) {
+        if (data.getDefinition() != this) {
+            throw new IllegalArgumentException(data.getName() + " was not created by " + name);
+        }
+    }
     
     /**
      * validates the data based on this element definition
@@ -117,6 +161,19 @@ public abstract class Element {
      */
     public abstract byte[] toBytes(Object data);
     
+    /**
+     * converts the supplied data to bytes and writes them into the
+     * given buffer.  Exactly getLength() bytes are written.
+     * 
+     * @param data the data to convert to bytes
+     * @param output the buffer to write the bytes to
+     * @param offset the position in the buffer for the first byte
+     */
+    public void toBytes(Object data, byte[] output, int offset) {
+        byte[] bytes = toBytes(data);
+        System.arraycopy(bytes, 0, output, offset, bytes.length);
+    }
+    
     /**
      * returns the name of this element
      * 
@@ -161,6 +218,7 @@ public abstract class Element {
      * @param value
      */
     public void setValue(Value value) {
+        checkNotFrozen();
         this.value = value;
     }
     
@@ -184,8 +242,27 @@ public abstract class Element {
      * @return the String value
      */
     public final String getString(byte[] data) {
+        return getString(data, 0, data.length);
+    }
+    
+    /**
+     * helper method for converting a range of the given bytes to a 
+     * string with the parent copybook's encoding
+     * 
+     * @param data the buffer holding the bytes to convert
+     * @param offset the position of the first byte to convert
+     * @param length the number of bytes to convert
+     * @return the String value
+     */
+    public final String getString(byte[] data, int offset, int length) {
+        CodePage codePage = getCodePage();
+        
+        if (codePage.isSingleByte()) {
+            return codePage.decode(data, offset, length);
+        }
+        
         try {
-            return new String(data, getSettings().getEncoding());
+            return new String(data, offset, length, getSettings().getEncoding());
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         } 
@@ -198,6 +275,12 @@ public abstract class Element {
      * @return the bytes for the string
      */
     public final byte[] getBytes(String s) {
+        CodePage codePage = getCodePage();
+        
+        if (codePage.isSingleByte()) {
+            return codePage.encode(s);
+        }
+        
         try {
             return s.getBytes(getSettings().getEncoding());
         } catch (UnsupportedEncodingException e) {
@@ -211,6 +294,7 @@ public abstract class Element {
      * @param settings the new settings
      */
     public void setSettings(Settings settings) {
+        checkNotFrozen();
         this.settings = settings;
     }
 
@@ -229,9 +313,45 @@ public abstract class Element {
      * @param parent the parent for this element
      */
     public void setParent(Group parent){
+        checkNotFrozen();
         this.parent = parent;
     }
     
+    /**
+     * whether this element is frozen.  A frozen element has its 
+     * position and length fixed and cannot be modified, which makes 
+     * it safe to share between threads.
+     * 
+     * @return whether this element is frozen
+     */
+    public final boolean isFrozen() {
+        return frozen;
+    }
+    
+    /**
+     * fixes the position of this element and prevents further 
+     * modification.  Called once the definition is complete.
+     * 
+     * @param position the absolute position of the first occurrence of
+     * this element in the data
+     */
+    protected void freeze(int position) {
+        checkNotFrozen();
+        this.position = position;
+        this.frozen = true;
+    }
+    
+    /**
+     * throws an exception if this element is frozen
+     * 
+     * @throws IllegalStateException if this element is frozen
+     */
+    protected final void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException(name + " cannot be modified once the copybook is complete");
+        }
+    }
+    
     /**
      * Returns the settings for this element
      * 
@@ -247,6 +367,23 @@ public abstract class Element {
         }
     }
     
+    /**
+     * returns the lookup tables for the current encoding
+     * 
+     * @return the code page for the current encoding
+     */
+    protected final CodePage getCodePage() {
+        String encoding = getSettings().getEncoding();
+        CodePage current = codePage;
+        
+        if (current == null || !current.getEncoding().equals(encoding)) {
+            current = CodePage.forEncoding(encoding);
+            codePage = current;
+        }
+        
+        return current;
+    }
+    
     @Override
     public String toString() {
         return new String(getSettings().getValues().SPACES.fill(level)) + name + ": '" 
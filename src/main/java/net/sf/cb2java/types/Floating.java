@@ -36,7 +36,7 @@ public class Floating extends Leaf {
     /** the precision of the number */
     private final Precision precision;
     /** the conversion object for interpreting the bytes */
-    private final Conversion conversion;
+    private Conversion conversion;
     
     public Floating(String name, int level, int occurs, Precision precision) {
         super(name, level, occurs);
@@ -45,6 +45,15 @@ public class Floating extends Leaf {
         this.conversion = getConversion();
     }
 
+    /**
+     * looks the conversion up again with the settings bound to the element
+     */
+    @Override
+    protected void freeze(int position) {
+        this.conversion = getConversion();
+        super.freeze(position);
+    }
+
     private Conversion getConversion() {
 		try {
 			Class<?> clazz = Class.forName(getSettings().getFloatConversion());
@@ -71,12 +80,27 @@ public class Floating extends Leaf {
     }
 
     @Override
-    public Data parse(byte[] input) {
+    public Data parse(byte[] input, int offset) {
         FloatingData data = (FloatingData) create();
-        data.setValue(conversion.fromBytes(input, precision));
+        
+        if (conversion instanceof IEEE754) {
+            data.setValue(((IEEE754) conversion).fromBytes(input, offset, precision));
+        } else {
+            /* custom conversions only know about whole arrays */
+            byte[] bytes = new byte[getLength()];
+            System.arraycopy(input, offset, bytes, 0, bytes.length);
+            data.setValue(conversion.fromBytes(bytes, precision));
+        }
+        
         return data;
     }
 
+    @Override
+    public void parseInto(Data data, byte[] input, int offset) {
+        checkDefinition(data);
+        ((FloatingData) data).setValue(((FloatingData) parse(input, offset)).getBigDecimal(), true);
+    }
+
     @Override
     public void validate(Object data) throws IllegalArgumentException {
         if (!(data instanceof BigDecimal)) {
@@ -18,10 +18,16 @@
  */
 package net.sf.cb2java.types;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
 import net.sf.cb2java.Value;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.GroupData;
@@ -35,12 +41,19 @@ public class Group extends Element {
     private final List<Element> children = new ArrayList<Element>();
     /** the wrapper list exposed through getChildren() */
     private final List<Element> wrapper = Collections.unmodifiableList(children);
+    /** the length of one instance, fixed once frozen */
+    private int length;
+    /** the occurrences of the children, fixed once frozen */
+    private Slots slots;
+    /** the data positions of the children by upper case name, fixed once frozen */
+    private Map<String, int[]> names;
     
     public Group(final String name, final int level, final int occurs) {
         super(name, level, occurs);
     }
     
     public void addChild(Element element) {
+        checkNotFrozen();
         children.add(element);
         element.setParent(this);
     }
@@ -55,18 +68,133 @@ public class Group extends Element {
 
     @Override
     public int getLength() {
+        if (isFrozen()) {
+            return length;
+        }
+        
         int length = 0;
         
         for (Iterator<Element> i = children.iterator(); i.hasNext();) {
             Element element = (Element) i.next();
-            for (int j = 0; j < element.getOccurs(); j++) {
-                length += element.getLength();
-            }
+            length += element.getOccurs() * element.getLength();
         }
         
         return length;
     }
     
+    /**
+     * freezes the children, positioning them one after the other, 
+     * and caches the length of this group
+     */
+    @Override
+    protected void freeze(int position) {
+        int pos = position;
+        
+        for (Iterator<Element> i = children.iterator(); i.hasNext();) {
+            Element element = (Element) i.next();
+            element.freeze(pos);
+            pos += element.getOccurs() * element.getLength();
+        }
+        
+        this.length = pos - position;
+        this.slots = new Slots(children);
+        this.names = index(slots);
+        super.freeze(position);
+    }
+    
+    private static Map<String, int[]> index(Slots slots) {
+        Map<String, int[]> names = new HashMap<String, int[]>();
+        
+        for (int i = 0; i < slots.elements.length; i++) {
+            String key = key(slots.elements[i].getName());
+            int[] positions = names.get(key);
+            
+            if (positions == null) {
+                positions = new int[] {i};
+            } else {
+                positions = Arrays.copyOf(positions, positions.length + 1);
+                positions[positions.length - 1] = i;
+            }
+            
+            names.put(key, positions);
+        }
+        
+        return Collections.unmodifiableMap(names);
+    }
+    
+    private static String key(String name) {
+        return name.toUpperCase(Locale.ENGLISH);
+    }
+    
+    private int[] positions(String name) {
+        if (isFrozen()) {
+            return names.get(key(name));
+        }
+        
+        return index(slots()).get(key(name));
+    }
+    
+    /**
+     * returns the position in the data of this group of the first 
+     * child with the given name, irrespective of case
+     * 
+     * @param name the name of the child
+     * @return the position of the first occurrence of the first child 
+     * with the name or -1 if there is none
+     */
+    public int indexOf(String name) {
+        int[] positions = positions(name);
+        return positions == null ? -1 : positions[0];
+    }
+    
+    /**
+     * returns the positions in the data of this group of every 
+     * occurrence of every child with the given name, irrespective 
+     * of case
+     * 
+     * @param name the name of the children
+     * @return the positions in data order, empty if there are none
+     */
+    public int[] indicesOf(String name) {
+        int[] positions = positions(name);
+        return positions == null ? new int[0] : positions.clone();
+    }
+    
+    /**
+     * every occurrence of every child in data order, with its offset 
+     * from the start of the group
+     */
+    private static final class Slots {
+        final Element[] elements;
+        final int[] offsets;
+        
+        Slots(List<Element> children) {
+            int count = 0;
+            
+            for (Element element : children) {
+                count += element.getOccurs();
+            }
+            
+            elements = new Element[count];
+            offsets = new int[count];
+            
+            int index = 0;
+            int pos = 0;
+            
+            for (Element element : children) {
+                for (int j = 0; j < element.getOccurs(); j++) {
+                    elements[index] = element;
+                    offsets[index++] = pos;
+                    pos += element.getLength();
+                }
+            }
+        }
+    }
+    
+    private Slots slots() {
+        return isFrozen() ? slots : new Slots(children);
+    }
+    
     @Override
     public String toString() {
         StringBuffer buffer = new StringBuffer();
@@ -90,27 +218,89 @@ public class Group extends Element {
     }
     
     @Override
-    public Data parse(final byte[] bytes) {
+    public Data parse(final byte[] bytes, final int offset) {
         ArrayList<Data> dataChildren = new ArrayList<Data>();
         
-        int pos = 0;
+        int pos = offset;
         
         for (Iterator<Element> i = children.iterator(); i.hasNext();) {
             final Element element = (Element) i.next();
+            final int length = element.getLength();
             for (int j = 0; j < element.getOccurs(); j++) {
-                final int end = pos + element.getLength();
-                dataChildren.add(element.parse(sub(bytes, pos, end)));
-                pos = end;
+                dataChildren.add(element.parse(bytes, pos));
+                pos += length;
             }
         }
         
         return new GroupData(this, dataChildren);
     }
-
-    private byte[] sub(byte[] in, int start, int end) {
-        byte[] out = new byte[end - start];
-        System.arraycopy(in, start, out, 0, out.length);
-        return out;
+    
+    /**
+     * decodes the children into the existing children of the data, 
+     * which must have been created or parsed by this group
+     */
+    @Override
+    public void parseInto(Data data, byte[] bytes, int offset) {
+        checkDefinition(data);
+        
+        Slots slots = slots();
+        List<Data> dataChildren = data.getChildren();
+        
+        for (int i = 0; i < slots.elements.length; i++) {
+            slots.elements[i].parseInto(dataChildren.get(i), bytes, offset + slots.offsets[i]);
+        }
+    }
+    
+    /**
+     * creates a new Data instance that decodes each child the first 
+     * time it is accessed and caches it from then on.  The buffer is 
+     * kept, not copied, and must not be modified while the data is in 
+     * use.
+     * 
+     * @param bytes the buffer holding the input data
+     * @param offset the position of the first byte of this group
+     * @return a new Data instance that decodes on demand
+     */
+    public GroupData parseLazy(byte[] bytes, int offset) {
+        return new GroupData(this, new LazyChildren(slots(), bytes, offset));
+    }
+    
+    /**
+     * the children of a group, decoded when first accessed
+     */
+    private static final class LazyChildren extends AbstractList<Data> implements RandomAccess {
+        private final Slots slots;
+        private final byte[] bytes;
+        private final int offset;
+        private final Data[] data;
+        
+        LazyChildren(Slots slots, byte[] bytes, int offset) {
+            this.slots = slots;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.data = new Data[slots.elements.length];
+        }
+        
+        @Override
+        public Data get(int index) {
+            Data child = data[index];
+            
+            if (child == null) {
+                Element element = slots.elements[index];
+                int pos = offset + slots.offsets[index];
+                
+                child = element instanceof Group 
+                    ? ((Group) element).parseLazy(bytes, pos) : element.parse(bytes, pos);
+                data[index] = child;
+            }
+            
+            return child;
+        }
+        
+        @Override
+        public int size() {
+            return data.length;
+        }
     }
     
     @Override
@@ -33,6 +33,25 @@ import net.sf.cb2java.data.IntegerData;
  */
 public abstract class Numeric extends Leaf {
 	
+    /** 
+     * returned by the primitive decoders when a value has to be 
+     * decoded through BigInteger instead, e.g. when it does not fit
+     */
+    public static final long UNDECODABLE = Long.MIN_VALUE;
+    
+    /** the number of digits that always fit in a long */
+    public static final int MAX_LONG_DIGITS = 18;
+    
+    /** powers of ten that fit in a long, indexed by exponent */
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_DIGITS + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
     private final int length;
     private final int decimalPlaces;
     private final boolean signed;
@@ -81,7 +100,12 @@ public abstract class Numeric extends Leaf {
     	}
     }
     
-    protected final boolean signed() {
+    /**
+     * whether the picture of this element has a sign
+     * 
+     * @return whether negative values are allowed
+     */
+    public final boolean signed() {
         return signed;
     }
     
@@ -177,11 +201,152 @@ public abstract class Numeric extends Leaf {
         }
     }
     
+    /**
+     * returns the unscaled value of the data as a long
+     * 
+     * @param data a BigInteger or BigDecimal
+     * @return the unscaled value or {@link #UNDECODABLE} if it has
+     * more than 18 digits
+     */
+    protected long getUnscaledLong(Object data) {
+        if (data instanceof BigInteger) {
+            BigInteger bigI = (BigInteger) data;
+            long value = bigI.longValue();
+            return bigI.bitLength() < 64 && inLongRange(value) ? value : UNDECODABLE;
+        }
+        
+        BigDecimal bigD = (BigDecimal) data;
+        
+        if (bigD.scale() != decimalPlaces()) {
+            bigD = bigD.setScale(decimalPlaces());
+        }
+        
+        if (bigD.precision() > MAX_LONG_DIGITS) {
+            return UNDECODABLE;
+        }
+        
+        return bigD.scale() == 0 ? bigD.longValue() : bigD.unscaledValue().longValue();
+    }
+    
+    /**
+     * returns ten to the power of the given exponent
+     * 
+     * @param exponent 0 - 18
+     * @return ten to the power of the exponent
+     */
+    public static long powerOfTen(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+    
+    private static boolean inLongRange(long value) {
+        return value < POWERS_OF_TEN[MAX_LONG_DIGITS] && value > -POWERS_OF_TEN[MAX_LONG_DIGITS];
+    }
+    
     @Override
     public Data create() {
     	return (decimalPlaces() > 0) ? new DecimalData(this) : new IntegerData(this);
     }
     
+    /**
+     * decodes the unscaled value of this element without creating a 
+     * Data instance.  The value is validated like parse() does.
+     * 
+     * @param input the buffer holding the input data
+     * @param offset the position of the first byte of this element
+     * @return the unscaled value or {@link #UNDECODABLE} if the bytes 
+     * can only be decoded through parse(), e.g. when they do not fit 
+     * in a long or are blank
+     * @throws IllegalArgumentException if the value is not valid
+     */
+    public long parseUnscaled(byte[] input, int offset) {
+        return UNDECODABLE;
+    }
+    
+    /**
+     * validates an unscaled value the same way as setValue() but 
+     * without creating a BigDecimal
+     * 
+     * @param unscaled the value without its decimal point
+     * @return the value
+     * @throws IllegalArgumentException if the value is not valid
+     */
+    protected final long checkUnscaled(long unscaled) {
+        if (unscaled < 0 && !signed()) {
+            throw createEx(BigDecimal.valueOf(unscaled, decimalPlaces()), getName() + " is not signed");
+        }
+        
+        if (digits() <= MAX_LONG_DIGITS 
+            && (unscaled >= POWERS_OF_TEN[digits()] || unscaled <= -POWERS_OF_TEN[digits()])) {
+            throw createEx(BigDecimal.valueOf(unscaled, decimalPlaces()), "must be no longer than " 
+                + digits() + " digits");
+        }
+        
+        return unscaled;
+    }
+    
+    /**
+     * validates an unscaled value without creating a BigDecimal
+     * 
+     * @param unscaled the value without its decimal point
+     * @throws IllegalArgumentException if the value is not valid
+     */
+    public void validateUnscaled(long unscaled) {
+        checkUnscaled(unscaled);
+    }
+    
+    /**
+     * writes an unscaled value that has been validated.  The types that
+     * can encode a long directly do so without creating a BigInteger or
+     * BigDecimal.
+     * 
+     * @param unscaled the value without its decimal point
+     * @param output the buffer to write to
+     * @param offset the position of the first byte of this element
+     */
+    public void toBytesUnscaled(long unscaled, byte[] output, int offset) {
+        toBytes(decimalPlaces() > 0 ? BigDecimal.valueOf(unscaled, decimalPlaces()) 
+            : BigInteger.valueOf(unscaled), output, offset);
+    }
+    
+    /**
+     * creates a new Data instance holding the given unscaled value,
+     * which must have been validated already
+     * 
+     * @param unscaled the value without its decimal point
+     * @return a new Data instance with the value
+     */
+    protected Data create(long unscaled) {
+        Data data = create();
+        setUnscaled(data, unscaled);
+        return data;
+    }
+    
+    private void setUnscaled(Data data, long unscaled) {
+        if (data instanceof DecimalData) {
+            ((DecimalData) data).setUnscaledLong(unscaled, false);
+        } else {
+            ((IntegerData) data).setValue(unscaled, false);
+        }
+    }
+    
+    /**
+     * decodes through parseUnscaled() into the existing data, only values
+     * that do not fit in a long go through parse()
+     */
+    @Override
+    public void parseInto(Data data, byte[] input, int offset) {
+        checkDefinition(data);
+        long unscaled = parseUnscaled(input, offset);
+        
+        if (unscaled != UNDECODABLE) {
+            setUnscaled(data, unscaled);
+        } else if (data instanceof DecimalData) {
+            ((DecimalData) data).setValue(((DecimalData) parse(input, offset)).getBigDecimal(), false);
+        } else {
+            ((IntegerData) data).setValue(((IntegerData) parse(input, offset)).getBigInteger(), false);
+        }
+    }
+    
     private IllegalArgumentException createEx(BigDecimal data, String reason) {
         return createEx(data, reason, null);
     }
@@ -20,12 +20,36 @@ package net.sf.cb2java.types;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.DecimalData;
 import net.sf.cb2java.data.IntegerData;
 
 public class Packed extends SignedNumeric {
 	
+    /** 
+     * the value of the two digits in a byte, indexed by the unsigned 
+     * byte, or -1 if either nibble is not a decimal digit
+     */
+    private static final byte[] DIGIT_PAIRS = new byte[256];
+    
+    static {
+        for (int i = 0; i < DIGIT_PAIRS.length; i++) {
+            int high = i >>> 4;
+            int low = i & 0x0F;
+            DIGIT_PAIRS[i] = (byte) (high > 9 || low > 9 ? -1 : high * 10 + low);
+        }
+    }
+    
+    /** the byte holding two digits, indexed by their value 0 - 99 */
+    private static final byte[] PAIR_BYTES = new byte[100];
+    
+    static {
+        for (int i = 0; i < PAIR_BYTES.length; i++) {
+            PAIR_BYTES[i] = (byte) (((i / 10) << 4) | (i % 10));
+        }
+    }
+	
     private final int digits;
     private final int length;
 
@@ -49,15 +73,82 @@ public class Packed extends SignedNumeric {
         return digits;
     }
 
+    /**
+     * decodes a packed decimal into a long without allocating.  Only 
+     * the sign nibbles C and F (positive) and D (negative if signed) 
+     * are accepted.
+     * 
+     * @param input the buffer holding the number
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     * @param signed whether a D sign nibble makes the number negative
+     * @return the unscaled value or {@link Numeric#UNDECODABLE} if the 
+     * number has more than 18 digits or is not valid packed decimal
+     */
+    public static long decodeLong(byte[] input, int offset, int length, boolean signed) {
+        int last = offset + length - 1;
+        
+        if (length * 2 - 1 > MAX_LONG_DIGITS 
+            && (length * 2 - 2 > MAX_LONG_DIGITS || (input[offset] & 0xF0) != 0)) {
+            return UNDECODABLE;
+        }
+        
+        long value = 0;
+        
+        for (int i = offset; i < last; i++) {
+            int pair = DIGIT_PAIRS[input[i] & 0xFF];
+            
+            if (pair < 0) {
+                return UNDECODABLE;
+            }
+            
+            value = value * 100 + pair;
+        }
+        
+        int digit = (input[last] & 0xF0) >>> 4;
+        
+        if (digit > 9) {
+            return UNDECODABLE;
+        }
+        
+        value = value * 10 + digit;
+        
+        switch (input[last] & 0x0F) {
+        case 0x0C:
+        case 0x0F:
+            return value;
+        case 0x0D:
+            return signed ? -value : value;
+        default:
+            return UNDECODABLE;
+        }
+    }
+    
+    @Override
+    public long parseUnscaled(byte[] input, int offset) {
+        if (digits > MAX_LONG_DIGITS) {
+            return UNDECODABLE;
+        }
+        
+        long unscaled = decodeLong(input, offset, length, signed());
+        return unscaled == UNDECODABLE ? UNDECODABLE : checkUnscaled(unscaled);
+    }
+    
     @Override
-    public Data parse(byte[] input) {
-        byte lastByte = input[input.length - 1];
+    public Data parse(byte[] input, int offset) {
+        long unscaled = parseUnscaled(input, offset);
+        
+        if (unscaled != UNDECODABLE) {
+            return create(unscaled);
+        }
+        
+        byte lastByte = input[offset + length - 1];
         boolean negative = signed() && (lastByte & 0x0F) == 0x0D;
         BigInteger bigI = BigInteger.ZERO;
         int numberLength = (length * 2) - 1;
 
         for (int i = 0; i < numberLength; i++) {
-            byte current = input[i / 2];
+            byte current = input[offset + i / 2];
             // if the index is even, use the left nibble odd, use the right nibble
             if (i % 2 == 0) {
                 current = (byte) ((current & 0xF0) >>> 4);
@@ -65,14 +156,7 @@ public class Packed extends SignedNumeric {
                 current = (byte) (current & 0x0F);
             }
 
-            /*
-             * magnitude is the one more than the reverse of the index so if
-             * there are 9 digits, the magnitude at i = 0, is 8, the magnitude
-             * at i = 8 is 0
-             */
-            int magnitude = numberLength - (i + 1);
-            BigInteger temp = BigInteger.TEN.pow(magnitude);
-            bigI = bigI.add(temp.multiply(BigInteger.valueOf(current)));
+            bigI = bigI.multiply(BigInteger.TEN).add(BigInteger.valueOf(current));
         }
 
         if (negative) {
@@ -92,28 +176,75 @@ public class Packed extends SignedNumeric {
         return data;
     }
 
+    /**
+     * encodes a value into packed decimal without allocating.  Digits 
+     * that do not fit in the given length are dropped.
+     * 
+     * @param value the unscaled value
+     * @param signed whether to write a C or D sign nibble rather than F
+     * @param output the buffer to write to
+     * @param offset the position of the first byte of the number
+     * @param length the number of bytes of the number
+     */
+    public static void encodeLong(long value, boolean signed, byte[] output, int offset, int length) {
+        int sign = signed ? (value < 0 ? 0x0D : 0x0C) : 0x0F;
+        /* the magnitude of Long.MIN_VALUE overflows, but its last digit is still right */
+        long magnitude = value < 0 ? -value : value;
+        int last = offset + length - 1;
+        
+        output[last] = (byte) ((int) Math.abs(magnitude % 10) << 4 | sign);
+        magnitude = Math.abs(magnitude / 10);
+        
+        for (int i = last - 1; i >= offset; i--) {
+            output[i] = PAIR_BYTES[(int) (magnitude % 100)];
+            magnitude /= 100;
+        }
+    }
+
     @Override
     public byte[] toBytes(Object data) {
-        BigInteger bigI = (data == null) ? BigInteger.ZERO : getUnscaled(data);
-        byte signNibble = signed() ? (byte) (bigI.compareTo(BigInteger.ZERO) < 0 ? 0x0D : 0x0C) : 0x0F;
-        byte[] bytes = new byte[getLength()];
+        byte[] bytes = new byte[length];
+        toBytes(data, bytes, 0);
+        return bytes;
+    }
+    
+    @Override
+    public void toBytes(Object data, byte[] output, int offset) {
+        long unscaled = (data == null) ? 0 : getUnscaledLong(data);
+        
+        if (unscaled != UNDECODABLE) {
+            encodeLong(unscaled, signed(), output, offset, length);
+        } else {
+            toBytes(getUnscaled(data), output, offset);
+        }
+    }
+    
+    @Override
+    public void toBytesUnscaled(long unscaled, byte[] output, int offset) {
+        encodeLong(unscaled, signed(), output, offset, length);
+    }
+    
+    private void toBytes(BigInteger bigI, byte[] output, int offset) {
+        byte signNibble = signed() ? (byte) (bigI.signum() < 0 ? 0x0D : 0x0C) : 0x0F;
         int numberLength = (length * 2) - 1;
+        
+        bigI = bigI.abs();
+        Arrays.fill(output, offset, offset + length, (byte) 0);
 
         for (int i = numberLength; i > 0; i--) {
             int value = bigI.mod(BigInteger.TEN).intValue();
-            int index = (i - 1) / 2;
+            int index = offset + (i - 1) / 2;
 
             if (i % 2 == 0) {
-                bytes[index] = (byte) (bytes[index] | value);
+                output[index] = (byte) (output[index] | value);
             } else {
-                bytes[index] = (byte) (bytes[index] | (value << 4));
+                output[index] = (byte) (output[index] | (value << 4));
             }
 
             bigI = bigI.divide(BigInteger.TEN);
         }
 
-        int signByte = bytes.length - 1;
-        bytes[signByte] = (byte) (bytes[signByte] | signNibble);
-        return bytes;
+        int signByte = offset + length - 1;
+        output[signByte] = (byte) (output[signByte] | signNibble);
     }
-}
\ No newline at end of file
+}
@@ -9,7 +9,12 @@ public abstract class SignedNumeric extends Numeric {
         this.position = signPosition;
     }
 
-    protected SignPosition getSignPosition() {
+    /**
+     * the position of the overpunched or separate sign
+     * 
+     * @return the position of the sign
+     */
+    public SignPosition getSignPosition() {
         return position;
     }
     
@@ -20,6 +20,7 @@ package net.sf.cb2java.types;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import net.sf.cb2java.CodePage;
 import net.sf.cb2java.Value;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.DecimalData;
@@ -31,9 +32,69 @@ public class SignedSeparate extends SignedNumeric {
         super(name, level, occurs, picture, signPosition);
     }
     
+    /**
+     * returns the offset of the sign byte relative to the start of the field
+     */
+    private int signIndex() {
+        if (getSignPosition() == SignPosition.LEADING) {
+            return 0;
+        } else if (getSignPosition() == SignPosition.TRAILING) {
+            return getLength() - 1;
+        } else {
+            throw new IllegalStateException("undefined sign position");
+        }
+    }
+    
+    @Override
+    public long parseUnscaled(byte[] bytes, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (!codePage.isSingleByte() || digits() > MAX_LONG_DIGITS) {
+            return UNDECODABLE;
+        }
+        
+        int signIndex = signIndex();
+        byte sign = bytes[offset + signIndex];
+        boolean negative = sign == codePage.sign(true);
+        
+        if (!negative && sign != codePage.sign(false)) {
+            return UNDECODABLE;
+        }
+        
+        int start = signIndex == 0 ? offset + 1 : offset;
+        int end = start + getLength() - 1;
+        long value = 0;
+        
+        for (int i = start; i < end; i++) {
+            int zoned = codePage.zoned(bytes[i]);
+            
+            if ((zoned & CodePage.ZONE_MASK) != CodePage.DIGIT) {
+                return UNDECODABLE;
+            }
+            
+            value = value * 10 + (zoned & CodePage.DIGIT_MASK);
+        }
+        
+        return checkUnscaled(negative ? -value : value);
+    }
+    
     @Override
-    public Data parse(byte[] bytes) {
-        String s = getString(bytes);
+    public Data parse(byte[] bytes, int offset) {
+        long unscaled = parseUnscaled(bytes, offset);
+        
+        if (unscaled != UNDECODABLE) {
+            return create(unscaled);
+        }
+        
+        return parseString(bytes, offset);
+    }
+    
+    /**
+     * decodes the bytes through a String, which also reports what is 
+     * wrong with invalid input
+     */
+    private Data parseString(byte[] bytes, int offset) {
+        String s = getString(bytes, offset, getLength());
         
         char sign;
         
@@ -70,6 +131,57 @@ public class SignedSeparate extends SignedNumeric {
     
     @Override
     public byte[] toBytes(Object data) {
+        byte[] bytes = new byte[getLength()];
+        toBytes(data, bytes, 0);
+        return bytes;
+    }
+    
+    /**
+     * writes the digits and the sign straight into the buffer using 
+     * the tables of the code page.  Leading digits that do not fit 
+     * are dropped.
+     */
+    @Override
+    public void toBytes(Object data, byte[] output, int offset) {
+        CodePage codePage = getCodePage();
+        
+        if (!codePage.isSingleByte()) {
+            byte[] bytes = toBytesString(data);
+            System.arraycopy(bytes, 0, output, offset, bytes.length);
+            return;
+        }
+        
+        int signIndex = signIndex();
+        int start = signIndex == 0 ? offset + 1 : offset;
+        int end = start + getLength() - 1;
+        long unscaled = (data == null) ? 0 : getUnscaledLong(data);
+        boolean negative;
+        
+        if (unscaled != UNDECODABLE) {
+            negative = unscaled < 0;
+            long magnitude = Math.abs(unscaled);
+            
+            for (int i = end - 1; i >= start; i--) {
+                output[i] = codePage.digit((int) (magnitude % 10));
+                magnitude /= 10;
+            }
+        } else {
+            BigInteger bigI = getUnscaled(data);
+            String s = bigI.abs().toString();
+            negative = bigI.signum() < 0;
+            
+            for (int i = end - 1, j = s.length() - 1; i >= start; i--, j--) {
+                output[i] = codePage.digit(j >= 0 ? s.charAt(j) - '0' : 0);
+            }
+        }
+        
+        output[offset + signIndex] = codePage.sign(negative);
+    }
+    
+    /**
+     * encodes the data through a String, for multi-byte encodings
+     */
+    private byte[] toBytesString(Object data) {
         String s;
         boolean positive;
         
@@ -78,8 +190,8 @@ public class SignedSeparate extends SignedNumeric {
             s = "";
         } else {
             BigInteger bigI = getUnscaled(data);
-            positive = BigDecimal.ZERO.unscaledValue().compareTo(bigI) < 0;
-            s = bigI.toString();
+            positive = bigI.signum() >= 0;
+            s = bigI.abs().toString();
         }
         
         char sign = positive ? '+' : '-';
@@ -103,4 +215,4 @@ public class SignedSeparate extends SignedNumeric {
     public int digits() {
         return getLength() - 1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package net.sf.cb2java;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class CodePageTest extends TestCase {
+
+	public void testZonedAscii() {
+		CodePage codePage = CodePage.forEncoding("cp1252");
+		assertTrue(codePage.isSingleByte());
+		assertEquals(CodePage.DIGIT | 7, codePage.zoned((byte) '7'));
+		assertEquals(CodePage.POSITIVE | 0, codePage.zoned((byte) '{'));
+		assertEquals(CodePage.POSITIVE | 3, codePage.zoned((byte) 'C'));
+		assertEquals(CodePage.NEGATIVE | 0, codePage.zoned((byte) '}'));
+		assertEquals(CodePage.NEGATIVE | 9, codePage.zoned((byte) 'R'));
+		assertEquals(CodePage.BLANK, codePage.zoned((byte) ' '));
+		assertEquals(CodePage.INVALID, codePage.zoned((byte) 'S'));
+	}
+
+	public void testZonedEbcdic() {
+		CodePage codePage = CodePage.forEncoding("Cp037");
+		assertTrue(codePage.isSingleByte());
+		assertEquals(CodePage.DIGIT | 7, codePage.zoned((byte) 0xF7));
+		assertEquals(CodePage.POSITIVE | 0, codePage.zoned((byte) 0xC0));
+		assertEquals(CodePage.POSITIVE | 3, codePage.zoned((byte) 0xC3));
+		assertEquals(CodePage.NEGATIVE | 0, codePage.zoned((byte) 0xD0));
+		assertEquals(CodePage.NEGATIVE | 9, codePage.zoned((byte) 0xD9));
+		assertEquals(CodePage.BLANK, codePage.zoned((byte) 0x40));
+		assertEquals(CodePage.INVALID, codePage.zoned((byte) 0x5B));
+	}
+
+	public void testDecodeMatchesCharset() throws Exception {
+		byte[] all = new byte[256];
+		for (int i = 0; i < all.length; i++) {
+			all[i] = (byte) i;
+		}
+		for (String encoding : new String[] {"cp1252", "Cp037", "Cp1047", "ISO-8859-1"}) {
+			String expected = new String(all, encoding);
+			assertEquals(encoding, expected, CodePage.forEncoding(encoding).decode(all, 0, all.length));
+			assertEquals(encoding, "ABC", CodePage.forEncoding(encoding).decode(("xABCx").getBytes(encoding), 1, 3));
+		}
+	}
+
+	public void testEncodeMatchesCharset() throws Exception {
+		String s = "Hello, World! 0123456789 {}[]|~\u00e9\u20ac\u4e2d";
+		for (String encoding : new String[] {"cp1252", "Cp037", "Cp1047", "ISO-8859-1"}) {
+			assertTrue(encoding, Arrays.equals(s.getBytes(encoding), CodePage.forEncoding(encoding).encode(s)));
+		}
+	}
+
+	public void testEncodeIntoBuffer() throws Exception {
+		byte[] buffer = new byte[5];
+		assertEquals(3, CodePage.forEncoding("Cp037").encode("ABCDEF", buffer, 1, 3));
+		assertTrue(Arrays.equals(new byte[] {0, (byte) 0xC1, (byte) 0xC2, (byte) 0xC3, 0}, buffer));
+	}
+
+	public void testMultiByte() {
+		assertFalse(CodePage.forEncoding("UTF-8").isSingleByte());
+	}
+
+	public void testShared() {
+		assertSame(CodePage.forEncoding("Cp037"), CodePage.forEncoding("Cp037"));
+	}
+}
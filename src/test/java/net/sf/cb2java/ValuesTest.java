@@ -49,4 +49,11 @@ public class ValuesTest extends TestCase {
 		}
 		assertTrue(ex.getMessage().startsWith("IBM420 recoded '!/09?@ AZ[]`az/!|' as '!/09?@ AZ"));
 	}
-}
+	
+	public void testEncodedFigurativeConstants() {
+		Values values = new Values("Cp037");
+		assertEquals(0x40, values.SPACES.getByte());
+		assertEquals((byte) 0xF0, values.ZEROES.getByte());
+		assertEquals("Cp037", values.SPACES.getEncoding());
+	}
+}
\ No newline at end of file
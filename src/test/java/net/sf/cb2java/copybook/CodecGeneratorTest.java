@@ -0,0 +1,140 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Record;
+
+public class CodecGeneratorTest extends TestCase {
+
+	private static final String NUMBERS = 
+		  "       01  NUMBERS.\n"
+		+ "           05  P1     PIC S9(5)V99 COMP-3.\n"
+		+ "           05  P2     PIC 9(4) COMP-3 OCCURS 2.\n"
+		+ "           05  P3     PIC S9(20) COMP-3.\n"
+		+ "           05  B1     PIC S9(4) COMP.\n"
+		+ "           05  B2     PIC 9(9)V9 COMP.\n"
+		+ "           05  Z1     PIC S9(5)V9.\n"
+		+ "           05  Z2     PIC 9(3).\n";
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testGenerated() throws Exception {
+		if (ToolProvider.getSystemJavaCompiler() == null) {
+			return;
+		}
+		RecordCodec codec = CodecGenerator.generate(copybook);
+		assertTrue(codec.isGenerated());
+		assertNull(codec.getFailure());
+		assertSameAsInterpreter(codec);
+	}
+
+	public void testInterpreter() throws Exception {
+		RecordCodec codec = CodecGenerator.interpreter(copybook);
+		assertFalse(codec.isGenerated());
+		assertNull(codec.getFailure());
+		assertSameAsInterpreter(codec);
+	}
+
+	public void testTypesCopybook() throws Exception {
+		Copybook types = CopybookParser.parse("types", new FileInputStream(new File("./target/test-classes/types.copybook")));
+		RecordCodec codec = CodecGenerator.forCopybook(types);
+		if (ToolProvider.getSystemJavaCompiler() == null) {
+			assertFalse(codec.isGenerated());
+			assertNotNull(codec.getFailure());
+			return;
+		}
+		assertTrue(codec.isGenerated());
+		byte[] bytes = new byte[types.getLength()];
+		types.getLayout().write(types.createNew(), bytes, 0);
+		assertEquals(types.parseData(bytes).toString(), codec.decode(bytes, 0).toString());
+	}
+
+	public void testNumbers() throws Exception {
+		if (ToolProvider.getSystemJavaCompiler() == null) {
+			return;
+		}
+		Copybook numbers = CopybookParser.parse("N", new StringReader(NUMBERS));
+		RecordCodec codec = CodecGenerator.generate(numbers);
+		Record record = numbers.createNew();
+		record.get(numbers.compile("NUMBERS.P1")).setValue(new BigDecimal("-12345.67"));
+		record.get(numbers.compile("NUMBERS.P2(2)")).setValue(new BigDecimal("9999"));
+		record.get(numbers.compile("NUMBERS.P3")).setValue(new BigDecimal("-98765432109876543210"));
+		record.get(numbers.compile("NUMBERS.B1")).setValue(new BigDecimal("-1234"));
+		record.get(numbers.compile("NUMBERS.B2")).setValue(new BigDecimal("123456789.5"));
+		record.get(numbers.compile("NUMBERS.Z1")).setValue(new BigDecimal("-4321.5"));
+		record.get(numbers.compile("NUMBERS.Z2")).setValue(new BigDecimal("7"));
+
+		byte[] expected = new byte[numbers.getLength()];
+		byte[] written = new byte[numbers.getLength()];
+		numbers.getLayout().write(record, expected, 0);
+		codec.encode(record, written, 0);
+		assertTrue(Arrays.equals(expected, written));
+
+		Record decoded = codec.decode(written, 0);
+		assertEquals(numbers.parseData(expected).toString(), decoded.toString());
+		assertEquals(new BigDecimal("-12345.67"), decoded.get(numbers.compile("NUMBERS.P1")).getValue());
+		assertEquals(new BigInteger("-98765432109876543210"), decoded.get(numbers.compile("NUMBERS.P3")).getValue());
+
+		written = new byte[numbers.getLength()];
+		codec.encode(decoded, written, 0);
+		assertTrue(Arrays.equals(expected, written));
+	}
+
+	public void testOutOfRange() throws Exception {
+		if (ToolProvider.getSystemJavaCompiler() == null) {
+			return;
+		}
+		Copybook numbers = CopybookParser.parse("N", new StringReader(NUMBERS));
+		RecordCodec codec = CodecGenerator.generate(numbers);
+		byte[] bytes = new byte[numbers.getLength()];
+		numbers.getLayout().write(numbers.createNew(), bytes, 0);
+		/* B1 holds 4 digits, but two bytes hold up to 32767 */
+		int b1 = 4 + 2 * 3 + 11;
+		bytes[b1] = 0x7F;
+		bytes[b1 + 1] = (byte) 0xFF;
+		try {
+			codec.decode(bytes, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testRejectsOtherRecords() throws Exception {
+		if (ToolProvider.getSystemJavaCompiler() == null) {
+			return;
+		}
+		Copybook other = TestCopybooks.b();
+		try {
+			CodecGenerator.generate(copybook).encode(other.createNew(), new byte[RECORD.length()], 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private void assertSameAsInterpreter(RecordCodec codec) throws Exception {
+		byte[] bytes = ("XX" + RECORD).getBytes("cp1252");
+		Record record = codec.decode(bytes, 2);
+		assertEquals(copybook.parseData(RECORD.getBytes("cp1252")).toString(), record.toString());
+
+		byte[] expected = new byte[RECORD.length() + 1];
+		byte[] written = new byte[RECORD.length() + 1];
+		copybook.getLayout().write(record, expected, 1);
+		codec.encode(record, written, 1);
+		assertTrue(Arrays.equals(expected, written));
+	}
+}
@@ -0,0 +1,88 @@
+package net.sf.cb2java.copybook;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+public class ColumnReaderTest extends TestCase {
+
+	private static final String[] RECORDS = {
+		"ABCDEFBCDE123451234 E FF EEEFFF",
+		"ZYXWVUTSRQ543214321GGGHHHIIIJJJ",
+		"ABCDEFBCDE000010001 E FF EEEFFF",
+	};
+
+	private Copybook copybook;
+	private byte[] buffer;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+		StringBuilder all = new StringBuilder("XX");
+		for (String record : RECORDS) {
+			all.append(record);
+		}
+		buffer = all.toString().getBytes("cp1252");
+	}
+
+	public void testColumns() {
+		ColumnBatch batch = copybook.readColumns(buffer, 2, 3, "ROOT.A", "ROOT.C", "root.d");
+		assertEquals(3, batch.size());
+		assertEquals(3, batch.getColumnCount());
+
+		assertEquals(ColumnBatch.Type.TEXT, batch.getType(0));
+		assertTrue(Arrays.equals(new int[] {0, 1, 0}, batch.getCodes(0)));
+		assertEquals(Arrays.asList("ABCDEF", "ZYXWVU"), batch.getDictionary(0));
+		assertEquals("ZYXWVU", batch.getString(0, 1));
+
+		assertEquals(0, batch.getScale(1));
+		assertTrue(Arrays.equals(new long[] {12345, 54321, 1}, batch.getUnscaled(1)));
+		assertTrue(Arrays.equals(new double[] {1234, 4321, 1}, batch.getDoubles(batch.indexOf("ROOT.D"))));
+	}
+
+	public void testSameAsRecords() throws Exception {
+		ColumnReader reader = new ColumnReader(copybook, "ROOT.SUB(1).E", "ROOT.SUB(2).F");
+		ColumnBatch batch = reader.read(Arrays.copyOfRange(buffer, 2, buffer.length));
+		Layout layout = copybook.getLayout();
+		for (int row = 0; row < RECORDS.length; row++) {
+			int offset = 2 + row * copybook.getLength();
+			assertEquals(layout.parse("ROOT.SUB(1).E", buffer, offset).getValue(), batch.getString(0, row));
+			assertEquals(layout.parse("ROOT.SUB(2).F", buffer, offset).getValue(), batch.getString(1, row));
+		}
+		assertEquals(2, batch.getDictionary(1).size());
+	}
+
+	public void testManyDistinctValues() throws Exception {
+		int count = 1000;
+		byte[] records = new byte[count * copybook.getLength()];
+		for (int i = 0; i < count; i++) {
+			String record = String.format("A%05dBCDE123451234 E FF EEEFFF", i % 300);
+			System.arraycopy(record.getBytes("cp1252"), 0, records, i * copybook.getLength(), copybook.getLength());
+		}
+		ColumnBatch batch = new ColumnReader(copybook, "ROOT.A").read(records);
+		assertEquals(300, batch.getDictionary(0).size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(String.format("A%05d", i % 300), batch.getString(0, i));
+		}
+	}
+
+	public void testRejectsBadInput() {
+		try {
+			new ColumnReader(copybook, "ROOT.X");
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			new ColumnReader(copybook, "ROOT.A").read(buffer, 2, 4);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			copybook.readColumns(buffer, 2, 1, "ROOT.A").getUnscaled(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
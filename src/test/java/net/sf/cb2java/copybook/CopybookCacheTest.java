@@ -0,0 +1,145 @@
+package net.sf.cb2java.copybook;
+
+import java.io.StringReader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import net.sf.cb2java.Settings;
+
+public class CopybookCacheTest extends TestCase {
+
+	private static final String SOURCE = "       01 REC.\n          05 A PIC X(3).\n          05 B PIC 9(4).\n";
+
+	public void testHitsAndMisses() {
+		CopybookCache cache = new CopybookCache(4);
+		Copybook first = cache.get("REC", SOURCE, Settings.DEFAULT);
+		Copybook second = cache.get("REC", SOURCE, Settings.DEFAULT);
+		assertSame(first, second);
+		assertEquals(7, first.getLength());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(0.5, cache.getHitRate(), 0.0);
+	}
+
+	public void testKeyIncludesSourceAndSettings() {
+		CopybookCache cache = new CopybookCache(4);
+		Settings ebcdic = new Settings.Default() {
+			public String getEncoding() {
+				return "Cp037";
+			}
+		};
+		Copybook plain = cache.get("REC", SOURCE, Settings.DEFAULT);
+		Copybook other = cache.get("REC", SOURCE, ebcdic);
+		Copybook changed = cache.get("REC", SOURCE.replace("X(3)", "X(5)"), Settings.DEFAULT);
+		assertNotSame(plain, other);
+		assertEquals("Cp037", other.getEncoding());
+		assertEquals(9, changed.getLength());
+		assertEquals(3, cache.size());
+		assertEquals(3, cache.getMisses());
+	}
+
+	public void testSourceIsNotRecoded() throws Exception {
+		CopybookCache cache = new CopybookCache(4);
+		String source = SOURCE.replace("X(3).", "X(3) VALUE '\u00c4\u00d6\u00dc'.");
+		Copybook copybook = cache.get("REC", source, Settings.DEFAULT);
+		byte[] value = copybook.compile("REC.A").getElement().getValue().get(5);
+		assertEquals("'\u00c4\u00d6\u00dc'", new String(value, copybook.getEncoding()));
+	}
+
+	@SuppressWarnings("deprecation")
+	public void testSharedCopybooksCannotBeChanged() {
+		CopybookCache cache = new CopybookCache(4);
+		Copybook copybook = cache.get("REC", SOURCE, Settings.DEFAULT);
+		try {
+			copybook.setEncoding("Cp037");
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		assertSame(copybook, cache.get("REC", SOURCE, Settings.DEFAULT));
+		assertEquals(Settings.DEFAULT.getEncoding(), copybook.getEncoding());
+	}
+
+	@SuppressWarnings("deprecation")
+	public void testSharedValuesCannotBeChanged() {
+		CopybookCache cache = new CopybookCache(4);
+		Copybook copybook = cache.get("REC", SOURCE, Settings.DEFAULT);
+		try {
+			copybook.getValues().setEncoding("Cp037");
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertEquals(' ', copybook.getValues().SPACES.getByte());
+		assertEquals('0', copybook.getValues().ZEROES.getByte());
+		assertEquals('"', copybook.getValues().QUOTES.getByte());
+	}
+
+	public void testEvictsLeastRecentlyUsed() {
+		CopybookCache cache = new CopybookCache(2);
+		Copybook a = cache.computeIfAbsent("a", loader(SOURCE));
+		cache.computeIfAbsent("b", loader(SOURCE));
+		assertSame(a, cache.getIfPresent("a"));
+		cache.computeIfAbsent("c", loader(SOURCE));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertNotNull(cache.getIfPresent("a"));
+		assertNull(cache.getIfPresent("b"));
+	}
+
+	public void testFailuresAreNotCached() {
+		CopybookCache cache = new CopybookCache(2);
+		try {
+			cache.computeIfAbsent("bad", new CopybookCache.Loader() {
+				public Copybook load() {
+					throw new IllegalStateException("broken");
+				}
+			});
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("broken", e.getMessage());
+		}
+		assertEquals(0, cache.size());
+	}
+
+	public void testLoadsOnceUnderContention() throws Exception {
+		final CopybookCache cache = new CopybookCache(2);
+		final AtomicInteger loads = new AtomicInteger();
+		final CopybookCache.Loader loader = new CopybookCache.Loader() {
+			public Copybook load() throws Exception {
+				loads.incrementAndGet();
+				Thread.sleep(50);
+				return CopybookParser.parse("REC", new StringReader(SOURCE));
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			Future<?>[] futures = new Future<?>[8];
+			for (int i = 0; i < futures.length; i++) {
+				futures[i] = executor.submit(new Callable<Copybook>() {
+					public Copybook call() {
+						return cache.computeIfAbsent("rec", loader);
+					}
+				});
+			}
+			for (Future<?> future : futures) {
+				assertSame(futures[0].get(), future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, loads.get());
+		assertEquals(7, cache.getHits());
+	}
+
+	private static CopybookCache.Loader loader(final String source) {
+		return new CopybookCache.Loader() {
+			public Copybook load() {
+				return CopybookParser.parse("REC", new StringReader(source));
+			}
+		};
+	}
+}
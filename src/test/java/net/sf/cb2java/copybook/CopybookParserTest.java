@@ -1,17 +1,21 @@
 package net.sf.cb2java.copybook;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import junit.framework.TestCase;
+import net.sf.cb2java.Settings;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.IntegerData;
 import net.sf.cb2java.data.Record;
+import net.sf.cb2java.types.Group;
 
 /**
  *
@@ -33,6 +37,113 @@ public class CopybookParserTest extends TestCase {
         assertEquals(55, copybook.getLength());
     }
     
+    /**
+     * Settings given to the parser are bound to the copybook as an
+     * immutable snapshot.
+     *
+     * @throws IOException
+     */
+    @SuppressWarnings("deprecation")
+    public void testSettingsAreBoundAtParse() throws IOException {
+        Settings ebcdic = new Settings.Default() {
+            public String getEncoding() {
+                return "Cp037";
+            }
+        };
+        Copybook copybook = TestCopybooks.b(ebcdic);
+        Settings.Snapshot snapshot = copybook.getSnapshot();
+        assertEquals("Cp037", copybook.getEncoding());
+        Record record = copybook.parseData(TestCopybooks.RECORD.getBytes("Cp037"));
+        assertEquals("ABCDEF", record.get(copybook.compile("ROOT.A")).getValue());
+
+        try {
+            copybook.setEncoding("Cp1252");
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("Cp037", copybook.getEncoding());
+        assertSame(snapshot, copybook.getSnapshot());
+    }
+    
+    /**
+     * A frozen copybook is parsed again with other settings instead of
+     * being changed.
+     *
+     * @throws IOException
+     */
+    public void testWithSettings() throws IOException {
+        Copybook copybook = TestCopybooks.b();
+        Copybook ebcdic = copybook.withSettings(copybook.getSnapshot().withEncoding("Cp037"));
+        assertNotSame(copybook, ebcdic);
+        assertEquals(Settings.DEFAULT.getEncoding(), copybook.getEncoding());
+        assertEquals("Cp037", ebcdic.getEncoding());
+        assertEquals(0x40, ebcdic.getValues().SPACES.getByte());
+        assertEquals(copybook.getLength(), ebcdic.getLength());
+        Record record = ebcdic.parseData(TestCopybooks.RECORD.getBytes("Cp037"));
+        assertEquals("ABCDEF", record.get(ebcdic.compile("ROOT.A")).getValue());
+    }
+    
+    /**
+     * Settings that change while records are parsed do not reach the
+     * copybook, every record is decoded with the settings it was parsed with.
+     *
+     * @throws IOException
+     */
+    public void testSettingsChangedDuringParse() throws IOException {
+        final String[] encoding = {"Cp037"};
+        Settings changing = new Settings.Default() {
+            public String getEncoding() {
+                return encoding[0];
+            }
+        };
+        Copybook copybook = TestCopybooks.b(changing);
+        byte[] bytes = TestCopybooks.RECORD.getBytes("Cp037");
+        String expected = copybook.parseData(bytes).toString();
+        Iterator<Record> records = copybook.iterator(new ByteArrayInputStream(concat(bytes, 3)));
+        
+        encoding[0] = "Cp1252";
+        while (records.hasNext()) {
+            assertEquals(expected, records.next().toString());
+            encoding[0] = encoding[0].equals("Cp1252") ? "Cp037" : "Cp1252";
+        }
+        assertEquals("Cp037", copybook.getEncoding());
+    }
+    
+    private static byte[] concat(byte[] record, int times) {
+        byte[] all = new byte[record.length * times];
+        for (int i = 0; i < times; i++) {
+            System.arraycopy(record, 0, all, i * record.length, record.length);
+        }
+        return all;
+    }
+
+    /**
+     * The analyzed tree has fixed positions and cannot be changed.
+     *
+     * @throws FileNotFoundException
+     */
+    public void testTreeIsFrozen() throws FileNotFoundException {
+        Copybook copybook = CopybookParser.parse("A", new FileInputStream(new File("./target/test-classes/a.copybook")));
+        assertTrue(copybook.isFrozen());
+        Group root = (Group) copybook.getChildren().get(0);
+        assertEquals(55, root.getLength());
+        assertEquals(19, root.getChildren().get(4).getPosition());
+        assertEquals(51, root.getChildren().get(9).getPosition());
+        try {
+            root.addChild(new Group("X", 15, 1));
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            root.getChildren().get(0).setValue(null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+    
     /**
      * Parse copybook data.
      *
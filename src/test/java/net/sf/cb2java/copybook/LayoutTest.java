@@ -0,0 +1,101 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.Arrays;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Data;
+import net.sf.cb2java.data.Record;
+
+public class LayoutTest extends TestCase {
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = CopybookParser.parse("A", new FileInputStream(new File("./target/test-classes/a.copybook")));
+	}
+
+	public void testOffsets() {
+		Layout layout = copybook.getLayout();
+		assertSame(layout, copybook.getLayout());
+		assertEquals(55, layout.getRecordLength());
+		assertEquals(13, layout.size());
+
+		assertEquals(0, layout.indexOf("ROOT.A"));
+		assertEquals(4, layout.indexOf("root.sub(1).e"));
+		assertEquals(-1, layout.indexOf("ROOT.SUB.E"));
+
+		int f2 = layout.indexOf("ROOT.SUB(2).F");
+		assertEquals(28, layout.getOffset(f2));
+		assertEquals(3, layout.getLength(f2));
+		assertTrue(Arrays.equals(new int[] {1}, layout.getSubscripts(f2)));
+
+		int k = layout.indexOf("ROOT.K");
+		assertEquals(51, layout.getOffset(k));
+		assertEquals(4, layout.getLength(k));
+		assertEquals("ROOT.K", layout.getPath(k));
+	}
+
+	public void testDuplicateNames() throws Exception {
+		Copybook duplicates = CopybookParser.parse("D", new StringReader(
+			  "       01  REC.\n"
+			+ "           05  CODE   PIC X(2).\n"
+			+ "           05  NAME   PIC X(3).\n"
+			+ "           05  CODE   PIC X(1).\n"
+			+ "           05  GRP.\n"
+			+ "               10  NAME   PIC X(2).\n"
+			+ "           05  GRP.\n"
+			+ "               10  NAME   PIC X(4).\n"));
+		Layout layout = duplicates.getLayout();
+		byte[] bytes = "AABBBCDDEEEE".getBytes("cp1252");
+
+		assertEquals(0, layout.indexOf("REC.CODE"));
+		assertEquals(0, layout.getOffset(layout.indexOf("rec.code")));
+		assertEquals(6, layout.getOffset(layout.indexOf("REC.GRP.NAME")));
+		assertEquals("AA", layout.parse("REC.CODE", bytes, 0).getValue());
+		assertEquals("DD", layout.parse("REC.GRP.NAME", bytes, 0).getValue());
+
+		Record record = duplicates.parseData(bytes);
+		assertEquals("AA", record.get(duplicates.compile("REC.CODE")).getValue());
+		assertEquals("DD", record.get(duplicates.compile("REC.GRP.NAME")).getValue());
+	}
+
+	public void testParseAndWriteLeaves() throws Exception {
+		Copybook b = TestCopybooks.b();
+		Layout layout = b.getLayout();
+		byte[] bytes = ("XX" + RECORD).getBytes("cp1252");
+
+		assertEquals(BigInteger.valueOf(1234), layout.parse("ROOT.D", bytes, 2).getValue());
+		Data[] leaves = layout.parseLeaves(bytes, 2);
+		assertEquals(8, leaves.length);
+		assertEquals("FFF", leaves[7].getValue());
+
+		Record record = b.parseData(RECORD.getBytes("cp1252"));
+		byte[] written = new byte[RECORD.length()];
+		layout.write(record, written, 0);
+		/* signed positive numbers are written overpunched */
+		assertEquals(RECORD.replace("12345", "1234E"), new String(written, "cp1252"));
+	}
+
+	public void testWriteFollowsOccurs() throws Exception {
+		Copybook b = TestCopybooks.b();
+		Record record = b.parseData(RECORD.getBytes("cp1252"));
+		record.get(b.compile("ROOT.SUB(2).E")).setValue("XYZ");
+		byte[] written = new byte[RECORD.length()];
+		b.getLayout().write(record, written, 0);
+		assertEquals("XYZ", b.getLayout().parse("ROOT.SUB(2).E", written, 0).getValue());
+		assertEquals(" E", b.getLayout().parse("ROOT.SUB(1).E", written, 0).getValue());
+
+		try {
+			b.getLayout().write(copybook.createNew(), written, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
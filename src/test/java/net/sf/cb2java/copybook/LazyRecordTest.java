@@ -0,0 +1,47 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import junit.framework.TestCase;
+import net.sf.cb2java.data.GroupData;
+import net.sf.cb2java.data.Record;
+
+public class LazyRecordTest extends TestCase {
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testSameAsEager() throws Exception {
+		byte[] bytes = RECORD.getBytes("cp1252");
+		assertEquals(copybook.parseData(bytes).toMap(), copybook.parseLazy(bytes).toMap());
+		assertEquals(copybook.parseData(bytes).toString(), copybook.parseLazy(bytes).toString());
+	}
+
+	public void testDecodesOnlyWhatIsUsed() throws Exception {
+		// D is not a number, which only fails once D is decoded
+		byte[] bytes = RECORD.replace("51234", "5XXXX").getBytes("cp1252");
+		Record record = copybook.parseLazy(bytes);
+		GroupData root = (GroupData) record.getChild("ROOT");
+
+		assertEquals("ABCDEF", root.getChild("A").getValue());
+		assertEquals("FFF", ((GroupData) root.getChildren().get(5)).getChild("F").getValue());
+
+		try {
+			root.getChild("D").getValue();
+			fail("D is invalid");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	public void testCachesDecodedFields() throws Exception {
+		Record record = copybook.parseLazy(("XX" + RECORD).getBytes("cp1252"), 2);
+		GroupData root = (GroupData) record.getChild("ROOT");
+		assertSame(root.getChild("B"), root.getChild("B"));
+		assertEquals("BCDE", root.getChild("B").getValue());
+	}
+}
@@ -0,0 +1,64 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Record;
+
+public class MappedRecordFileTest extends TestCase {
+
+	private Copybook copybook;
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+		file = File.createTempFile("mapped", ".data");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			for (int i = 0; i < 100; i++) {
+				out.write((RECORD.substring(0, 15) + String.format("%04d", i) + RECORD.substring(19)).getBytes("cp1252"));
+			}
+			/* trailing partial record */
+			out.write("ABC".getBytes("cp1252"));
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testRandomAccessAcrossSegments() throws IOException {
+		/* 3 records per segment */
+		try (MappedRecordFile records = new MappedRecordFile(copybook, file, 100)) {
+			assertEquals(100, records.size());
+			assertEquals("42", value(records.get(42)));
+			assertEquals("0", value(records.get(0)));
+			assertEquals("99", value(records.get(99)));
+			try {
+				records.get(100);
+				fail();
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testRangeScan() throws IOException {
+		try (MappedRecordFile records = new MappedRecordFile(copybook, file)) {
+			Iterator<Record> range = records.iterator(10, 13);
+			assertEquals("10", value(range.next()));
+			assertEquals("11", value(range.next()));
+			assertEquals("12", value(range.next()));
+			assertFalse(range.hasNext());
+		}
+	}
+
+	private String value(Record record) {
+		return record.getChild("ROOT").getChildren().get(3).getValue().toString();
+	}
+}
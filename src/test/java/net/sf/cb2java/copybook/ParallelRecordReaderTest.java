@@ -0,0 +1,152 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.IntegerData;
+import net.sf.cb2java.data.Record;
+
+public class ParallelRecordReaderTest extends TestCase {
+
+	private static final int RECORDS = 1000;
+
+	private Copybook copybook;
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+		file = File.createTempFile("parallel", ".data");
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			for (int i = 0; i < RECORDS; i++) {
+				out.write((RECORD.substring(0, 15) + String.format("%04d", i) + RECORD.substring(19)).getBytes("cp1252"));
+			}
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testOrdered() throws IOException {
+		final List<Long> values = new ArrayList<Long>();
+		ParallelRecordReader reader = new ParallelRecordReader(copybook, file);
+		reader.setChunkSize(7);
+		reader.setWindow(3);
+		reader.read(new ParallelRecordReader.RecordHandler() {
+			public void handle(long index, Record record) {
+				assertEquals(index, value(record));
+				values.add(value(record));
+			}
+		}, true);
+
+		assertEquals(RECORDS, values.size());
+		for (int i = 0; i < RECORDS; i++) {
+			assertEquals(i, values.get(i).longValue());
+		}
+	}
+
+	public void testUnorderedOnExecutor() throws IOException {
+		final AtomicLongArray seen = new AtomicLongArray(RECORDS);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ParallelRecordReader reader = new ParallelRecordReader(copybook, file);
+			reader.setChunkSize(64);
+			reader.read(new ParallelRecordReader.RecordHandler() {
+				public void handle(long index, Record record) {
+					seen.incrementAndGet((int) value(record));
+				}
+			}, false, executor);
+		} finally {
+			executor.shutdown();
+		}
+
+		for (int i = 0; i < RECORDS; i++) {
+			assertEquals(1, seen.get(i));
+		}
+	}
+
+	public void testChunkMustFitInAnArray() {
+		ParallelRecordReader reader = new ParallelRecordReader(copybook, file);
+		reader.setChunkSize((Integer.MAX_VALUE - 8) / 31);
+		try {
+			reader.setChunkSize(Integer.MAX_VALUE / 16);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testOrderedHandlerThrows() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("stop");
+		final AtomicInteger handled = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ParallelRecordReader reader = new ParallelRecordReader(copybook, file);
+			reader.setChunkSize(7);
+			reader.setWindow(8);
+			reader.read(new ParallelRecordReader.RecordHandler() {
+				public void handle(long index, Record record) {
+					if (handled.incrementAndGet() == 10) {
+						throw failure;
+					}
+				}
+			}, true, executor);
+			fail();
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(10, handled.get());
+		assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+	}
+
+	public void testUnorderedHandlerThrows() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("stop");
+		final AtomicInteger handled = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ParallelRecordReader reader = new ParallelRecordReader(copybook, file);
+			reader.setChunkSize(16);
+			reader.read(new ParallelRecordReader.RecordHandler() {
+				public void handle(long index, Record record) {
+					if (index == 100) {
+						throw failure;
+					}
+					handled.incrementAndGet();
+					try {
+						Thread.sleep(1);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}, false, executor);
+			fail();
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		} finally {
+			executor.shutdown();
+		}
+		/* the chunks still running when the handler threw have stopped */
+		int count = handled.get();
+		Thread.sleep(50);
+		assertEquals(count, handled.get());
+		assertTrue(count < RECORDS);
+	}
+
+	private static long value(Record record) {
+		return ((IntegerData) record.getChild("ROOT").getChildren().get(3)).getLong();
+	}
+}
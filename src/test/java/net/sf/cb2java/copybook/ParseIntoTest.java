@@ -0,0 +1,150 @@
+package net.sf.cb2java.copybook;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Data;
+import net.sf.cb2java.data.DecimalData;
+import net.sf.cb2java.data.FloatingData;
+import net.sf.cb2java.data.IntegerData;
+import net.sf.cb2java.data.Record;
+
+public class ParseIntoTest extends TestCase {
+
+	private static final String FIRST = TestCopybooks.RECORD;
+	private static final String SECOND = "ZYXWVUTSRQ543214321GGGHHHIIIJJJ";
+
+	private static final String NUMBERS = 
+		  "       01  NUMBERS.\n"
+		+ "           05  PRICE  PIC S9(5)V99 COMP-3.\n"
+		+ "           05  TOTAL  PIC S9(7)V99.\n"
+		+ "           05  RATE   COMP-2.\n"
+		+ "           05  RATIO  COMP-1.\n"
+		+ "           05  BIG    PIC S9(20) COMP-3.\n"
+		+ "           05  HUGE   PIC 9(20).\n"
+		+ "           05  WIDE   PIC S9(18)V99.\n";
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testOverwritesInPlace() throws Exception {
+		Record record = copybook.createNew();
+		List<Data> leaves = leaves(record, new ArrayList<Data>());
+
+		assertSame(record, copybook.parseInto(record, ("XX" + FIRST).getBytes("cp1252"), 2));
+		assertEquals(copybook.parseData(FIRST.getBytes("cp1252")).toString(), record.toString());
+
+		copybook.parseInto(record, SECOND.getBytes("cp1252"), 0);
+		assertEquals(copybook.parseData(SECOND.getBytes("cp1252")).toString(), record.toString());
+
+		List<Data> after = leaves(record, new ArrayList<Data>());
+		for (int i = 0; i < leaves.size(); i++) {
+			assertSame(leaves.get(i), after.get(i));
+		}
+	}
+
+	public void testNumbers() throws Exception {
+		Copybook numbers = CopybookParser.parse("N", new StringReader(NUMBERS));
+		byte[] first = write(numbers, "-12345.67", "-1234567.89", "2.5", "0.75",
+			"-98765432109876543210", "12345678901234567890", "-123456789012345678.91");
+		byte[] second = write(numbers, "0.01", "42.00", "-1.25", "-8", 
+			"7", "3", "0.99");
+
+		Record record = numbers.createNew();
+		numbers.parseInto(record, first, 0);
+		assertEquals(numbers.parseData(first).toString(), record.toString());
+		assertEquals(new BigDecimal("-12345.67"), decimal(numbers, record, "PRICE").getBigDecimal());
+		assertEquals(-1234567, decimal(numbers, record, "PRICE").getUnscaledLong());
+		assertEquals(new BigDecimal("-1234567.89"), decimal(numbers, record, "TOTAL").getBigDecimal());
+		assertEquals(2.5, ((FloatingData) get(numbers, record, "RATE")).getBigDecimal().doubleValue());
+		assertEquals(0.75, ((FloatingData) get(numbers, record, "RATIO")).getBigDecimal().doubleValue());
+		/* more than 18 digits go through parse() */
+		assertEquals(new BigInteger("-98765432109876543210"), integer(numbers, record, "BIG").getBigInteger());
+		assertFalse(integer(numbers, record, "BIG").isCompact());
+		assertEquals(new BigInteger("12345678901234567890"), integer(numbers, record, "HUGE").getBigInteger());
+		assertEquals(new BigDecimal("-123456789012345678.91"), decimal(numbers, record, "WIDE").getBigDecimal());
+		assertFalse(decimal(numbers, record, "WIDE").isCompact());
+
+		List<Data> leaves = leaves(record, new ArrayList<Data>());
+		numbers.parseInto(record, second, 0);
+		assertEquals(numbers.parseData(second).toString(), record.toString());
+		assertEquals(1, decimal(numbers, record, "PRICE").getUnscaledLong());
+		assertEquals(new BigDecimal("42.00"), decimal(numbers, record, "TOTAL").getBigDecimal());
+		assertEquals(-1.25, ((FloatingData) get(numbers, record, "RATE")).getBigDecimal().doubleValue());
+		assertEquals(-8.0, ((FloatingData) get(numbers, record, "RATIO")).getBigDecimal().doubleValue());
+		/* the same data objects hold the small values as longs again */
+		assertTrue(integer(numbers, record, "BIG").isCompact());
+		assertEquals(7, integer(numbers, record, "BIG").getLong());
+		assertEquals(3, integer(numbers, record, "HUGE").getLong());
+		assertEquals(99, decimal(numbers, record, "WIDE").getUnscaledLong());
+		assertEquals(new BigDecimal("0.99"), decimal(numbers, record, "WIDE").getBigDecimal());
+
+		List<Data> after = leaves(record, new ArrayList<Data>());
+		for (int i = 0; i < leaves.size(); i++) {
+			assertSame(leaves.get(i), after.get(i));
+		}
+	}
+
+	public void testRejectsOtherCopybook() throws Exception {
+		Copybook other = TestCopybooks.b();
+		try {
+			copybook.parseInto(other.createNew(), FIRST.getBytes("cp1252"), 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static byte[] write(Copybook numbers, String... values) {
+		String[] names = {"PRICE", "TOTAL", "RATE", "RATIO", "BIG", "HUGE", "WIDE"};
+		Record record = numbers.createNew();
+		for (int i = 0; i < names.length; i++) {
+			get(numbers, record, names[i]).setValue(new BigDecimal(values[i]));
+		}
+		Layout layout = numbers.getLayout();
+		byte[] bytes = new byte[numbers.getLength()];
+		layout.write(record, bytes, 0);
+		/* IEEE754 reads the bytes least significant first */
+		bits(bytes, layout.getOffset(layout.indexOf("NUMBERS.RATE")), 
+			Double.doubleToLongBits(Double.parseDouble(values[2])), 8);
+		bits(bytes, layout.getOffset(layout.indexOf("NUMBERS.RATIO")), 
+			Float.floatToIntBits(Float.parseFloat(values[3])), 4);
+		return bytes;
+	}
+
+	private static void bits(byte[] bytes, int offset, long bits, int length) {
+		for (int i = 0; i < length; i++) {
+			bytes[offset + i] = (byte) (bits >>> (8 * i));
+		}
+	}
+
+	private static Data get(Copybook numbers, Record record, String name) {
+		return record.get(numbers.compile("NUMBERS." + name));
+	}
+
+	private static DecimalData decimal(Copybook numbers, Record record, String name) {
+		return (DecimalData) get(numbers, record, name);
+	}
+
+	private static IntegerData integer(Copybook numbers, Record record, String name) {
+		return (IntegerData) get(numbers, record, name);
+	}
+
+	private static List<Data> leaves(Data data, List<Data> leaves) {
+		for (Data child : data.getChildren()) {
+			if (child.isLeaf()) {
+				leaves.add(child);
+			} else {
+				leaves(child, leaves);
+			}
+		}
+		return leaves;
+	}
+}
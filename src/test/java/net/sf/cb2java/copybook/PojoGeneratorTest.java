@@ -0,0 +1,231 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Record;
+import net.sf.cb2java.types.Leaf;
+
+public class PojoGeneratorTest extends TestCase {
+
+	private static final String AMOUNTS = 
+		  "       01  AMOUNTS.\n"
+		+ "           05  PRICE  PIC S9(5)V99 COMP-3.\n"
+		+ "           05  RATE   PIC 9(3)V9(4) COMP.\n"
+		+ "           05  TOTAL  PIC S9(7)V99.\n"
+		+ "           05  COUNT  PIC 9(4) COMP-3.\n";
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testNames() {
+		assertEquals("custName", PojoGenerator.fieldName("CUST-NAME"));
+		assertEquals("CustName", PojoGenerator.typeName("CUST-NAME"));
+		assertEquals("new_", PojoGenerator.fieldName("NEW"));
+		assertEquals("_01Rec", PojoGenerator.typeName("01-REC"));
+	}
+
+	public void testSource() {
+		String source = new PojoGenerator().generate(copybook, "test", "B", "b.copybook");
+		assertTrue(source.contains("package test;"));
+		assertTrue(source.contains("public static final int LENGTH = 31;"));
+		assertTrue(source.contains("public long c;"));
+		assertTrue(source.contains("public final Sub[] sub = new Sub[2];"));
+		assertTrue(source.contains("public String e;"));
+	}
+
+	public void testUnscaledSource() {
+		PojoGenerator generator = new PojoGenerator();
+		generator.setUnscaledDecimals(true);
+		String source = generator.generate(parse(AMOUNTS), "test", "Amounts", "amounts.copybook");
+		assertTrue(source.contains("public long price;"));
+		assertTrue(source.contains("/** without its decimal point, 4 decimal places */"));
+		assertTrue(source.contains("u = Packed.decodeLong(b, o + 0, 4, true);"));
+		assertTrue(source.contains("Binary.encodeLong(this.rate, b, o + 4, 4, false);"));
+		assertTrue(source.contains("Decimal.decodeLong(b, o + 8, 9, p, SignPosition.TRAILING)"));
+		assertTrue(source.contains("if (this.count < 0L || this.count > 9999L) {"));
+		assertTrue(source.contains("public long count;"));
+	}
+
+	public void testLeavesMustMatch() throws Exception {
+		String[] descriptions = descriptions(copybook);
+		assertEquals(6, PojoSupport.leaves(copybook, descriptions, 31).length);
+		assertEquals("C Decimal 10 5 0 signed TRAILING", descriptions[2]);
+
+		/* the same names and lengths, but D is alphanumeric */
+		descriptions[3] = descriptions[3].replace("Decimal", "AlphaNumeric");
+		assertMismatch(copybook, descriptions);
+
+		descriptions = descriptions(copybook);
+		descriptions[1] = descriptions[1].replace(" 6 4 ", " 7 4 ");
+		assertMismatch(copybook, descriptions);
+
+		Copybook amounts = parse(AMOUNTS);
+		descriptions = descriptions(amounts);
+		descriptions[0] = descriptions[0].replace(" 2", " 3");
+		assertMismatch(amounts, descriptions);
+
+		/* the generated code has the byte order of COMP-5 items as literals */
+		Copybook native_ = parse("       01  N.\n           05  X  PIC 9(4) COMP-5.\n");
+		Copybook swapped = native_.withSettings(native_.getSnapshot().withLittleEndian(!native_.getLittleEndian()));
+		assertMismatch(swapped, descriptions(native_));
+	}
+
+	public void testRoundTrip() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		if (compiler == null) {
+			return;
+		}
+
+		File dir = Files.createTempDirectory("pojo").toFile();
+
+		try {
+			roundTrip(compiler, dir);
+		} finally {
+			delete(dir);
+		}
+	}
+
+	public void testUnscaledRoundTrip() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+		if (compiler == null) {
+			return;
+		}
+
+		File dir = Files.createTempDirectory("pojo").toFile();
+
+		try {
+			File copybookFile = new File(dir, "amounts.copybook");
+			Files.write(copybookFile.toPath(), AMOUNTS.getBytes("cp1252"));
+			PojoGenerator.main(new String[] {"--unscaled-decimals", dir.getPath(), "test", copybookFile.getPath()});
+			File source = new File(dir, "test/Amounts.java");
+			assertEquals(0, compiler.run(null, null, null, "-classpath", "./target/classes", source.getPath()));
+
+			Copybook amounts = parse(AMOUNTS);
+			Record record = amounts.createNew();
+			record.get(amounts.compile("AMOUNTS.PRICE")).setValue(new BigDecimal("-12345.67"));
+			record.get(amounts.compile("AMOUNTS.RATE")).setValue(new BigDecimal("1.0625"));
+			record.get(amounts.compile("AMOUNTS.TOTAL")).setValue(new BigDecimal("-1234567.89"));
+			record.get(amounts.compile("AMOUNTS.COUNT")).setValue(new BigDecimal("42"));
+			byte[] expected = new byte[amounts.getLength()];
+			amounts.getLayout().write(record, expected, 0);
+
+			URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, getClass().getClassLoader());
+
+			try {
+				Class<?> type = loader.loadClass("test.Amounts");
+				Class<?> codecType = loader.loadClass("test.Amounts$Codec");
+				Object codec = codecType.getConstructor(Copybook.class).newInstance(amounts);
+				Object decoded = codecType.getMethod("decode", byte[].class, int.class).invoke(codec, expected, 0);
+				Object root = type.getField("amounts").get(decoded);
+				Class<?> rootType = root.getClass();
+				assertEquals(Long.valueOf(-1234567), rootType.getField("price").get(root));
+				assertEquals(Long.valueOf(10625), rootType.getField("rate").get(root));
+				assertEquals(Long.valueOf(-123456789), rootType.getField("total").get(root));
+				assertEquals(Long.valueOf(42), rootType.getField("count").get(root));
+
+				byte[] written = new byte[amounts.getLength()];
+				codecType.getMethod("encode", type, byte[].class, int.class).invoke(codec, decoded, written, 0);
+				assertTrue(Arrays.equals(expected, written));
+
+				/* COUNT holds 4 digits */
+				rootType.getField("count").set(root, Long.valueOf(12345));
+				try {
+					codecType.getMethod("encode", type, byte[].class, int.class).invoke(codec, decoded, written, 0);
+					fail();
+				} catch (InvocationTargetException e) {
+					assertTrue(e.getCause() instanceof IllegalArgumentException);
+				}
+			} finally {
+				loader.close();
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private void roundTrip(JavaCompiler compiler, File dir) throws Exception {
+		PojoGenerator.main(new String[] {dir.getPath(), "test", "./target/test-classes/b.copybook"});
+		File source = new File(dir, "test/B.java");
+		assertTrue(source.exists());
+		assertEquals(0, compiler.run(null, null, null, "-classpath", "./target/classes", source.getPath()));
+
+		URLClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, getClass().getClassLoader());
+		Class<?> type = loader.loadClass("test.B");
+		Class<?> codecType = loader.loadClass("test.B$Codec");
+		Object codec = codecType.getConstructor(Copybook.class).newInstance(copybook);
+
+		byte[] bytes = ("XX" + RECORD).getBytes("cp1252");
+		Object b = codecType.getMethod("decode", byte[].class, int.class).invoke(codec, bytes, 2);
+		Object root = type.getField("root").get(b);
+		Class<?> rootType = root.getClass();
+		assertEquals("ABCDEF", rootType.getField("a").get(root));
+		assertEquals(Long.valueOf(12345), rootType.getField("c").get(root));
+		assertEquals(Long.valueOf(1234), rootType.getField("d").get(root));
+		Object[] sub = (Object[]) rootType.getField("sub").get(root);
+		assertEquals(" E", sub[0].getClass().getField("e").get(sub[0]));
+		assertEquals("FFF", sub[1].getClass().getField("f").get(sub[1]));
+
+		byte[] expected = new byte[RECORD.length() + 1];
+		byte[] written = new byte[RECORD.length() + 1];
+		copybook.getLayout().write(copybook.parseData(RECORD.getBytes("cp1252")), expected, 1);
+		codecType.getMethod("encode", type, byte[].class, int.class).invoke(codec, b, written, 1);
+		assertTrue(Arrays.equals(expected, written));
+		loader.close();
+	}
+
+	private static Copybook parse(String source) {
+		return CopybookParser.parse("T", new StringReader(source));
+	}
+
+	private static String[] descriptions(Copybook copybook) {
+		List<Leaf> leaves = new ArrayList<Leaf>();
+		PojoSupport.collect(copybook, leaves);
+		String[] descriptions = new String[leaves.size()];
+
+		for (int i = 0; i < descriptions.length; i++) {
+			descriptions[i] = PojoSupport.describe(leaves.get(i));
+		}
+
+		return descriptions;
+	}
+
+	private static void assertMismatch(Copybook copybook, String[] descriptions) {
+		try {
+			PojoSupport.leaves(copybook, descriptions, copybook.getLength());
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+
+		assertTrue(file.delete());
+	}
+}
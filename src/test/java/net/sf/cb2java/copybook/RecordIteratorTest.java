@@ -0,0 +1,69 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import junit.framework.TestCase;
+import net.sf.cb2java.data.Record;
+
+public class RecordIteratorTest extends TestCase {
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testIteratesRecordsLazily() throws IOException {
+		byte[] data = (RECORD + RECORD.replace("ABCDEF", "UVWXYZ") + RECORD).getBytes("cp1252");
+		RecordIterator records = copybook.iterator(new ByteArrayInputStream(data));
+
+		assertTrue(records.hasNext());
+		assertEquals("ABCDEF", records.next().getChild("ROOT").getChildren().get(0).toString());
+		assertTrue(records.hasNext());
+		assertEquals("UVWXYZ", records.next().getChild("ROOT").getChildren().get(0).toString());
+		assertTrue(records.hasNext());
+		records.next();
+		assertFalse(records.hasNext());
+
+		try {
+			records.next();
+			fail();
+		} catch (NoSuchElementException e) {
+			// expected
+		}
+	}
+
+	public void testEmptyStream() {
+		RecordIterator records = copybook.iterator(new ByteArrayInputStream(new byte[0]));
+		assertFalse(records.hasNext());
+	}
+
+	public void testPartialFinalRecord() throws IOException {
+		byte[] data = (RECORD + "ABC").getBytes("cp1252");
+		RecordIterator records = copybook.iterator(new ByteArrayInputStream(data));
+		records.next();
+		Record last = records.next();
+		assertFalse(records.hasNext());
+		assertEquals("ABC", last.getChild("ROOT").getChildren().get(0).toString().trim());
+	}
+
+	public void testCloseClosesStream() throws IOException {
+		final boolean[] closed = new boolean[1];
+		ByteArrayInputStream stream = new ByteArrayInputStream(RECORD.getBytes("cp1252")) {
+			@Override
+			public void close() throws IOException {
+				closed[0] = true;
+			}
+		};
+
+		try (RecordIterator records = copybook.iterator(stream)) {
+			assertTrue(records.hasNext());
+		}
+
+		assertTrue(closed[0]);
+	}
+}
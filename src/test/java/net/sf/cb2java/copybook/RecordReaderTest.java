@@ -0,0 +1,59 @@
+package net.sf.cb2java.copybook;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import junit.framework.TestCase;
+import net.sf.cb2java.copybook.RecordReader.PartialRecord;
+
+public class RecordReaderTest extends TestCase {
+
+	public void testRecordsStraddlingReads() throws IOException {
+		byte[] data = new byte[10000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+
+		RecordReader reader = reader(data, 7, 16, PartialRecord.FAIL);
+		byte[] record = new byte[7];
+		try {
+			for (int i = 0; i < data.length / 7; i++) {
+				assertTrue(reader.read(record));
+				assertTrue(Arrays.equals(Arrays.copyOfRange(data, i * 7, i * 7 + 7), record));
+			}
+			reader.read(record);
+			fail();
+		} catch (EOFException e) {
+			assertEquals(data.length / 7, reader.getCount());
+		}
+	}
+
+	public void testPartialRecordIsPadded() throws IOException {
+		RecordReader reader = reader(new byte[] {1, 2, 3, 4, 5}, 3, 1024, PartialRecord.PAD);
+		assertTrue(Arrays.equals(new byte[] {1, 2, 3}, reader.next()));
+		assertTrue(Arrays.equals(new byte[] {4, 5, 0}, reader.next()));
+		assertNull(reader.next());
+	}
+
+	public void testPartialRecordIsSkipped() throws IOException {
+		RecordReader reader = reader(new byte[] {1, 2, 3, 4, 5}, 3, 2, PartialRecord.SKIP);
+		assertTrue(Arrays.equals(new byte[] {1, 2, 3}, reader.next()));
+		assertNull(reader.next());
+		assertNull(reader.next());
+	}
+
+	public void testReadAtOffset() throws IOException {
+		RecordReader reader = reader(new byte[] {1, 2, 3, 4}, 2, 1024, PartialRecord.FAIL);
+		byte[] block = new byte[4];
+		assertTrue(reader.read(block, 0));
+		assertTrue(reader.read(block, 2));
+		assertFalse(reader.read(block, 0));
+		assertTrue(Arrays.equals(new byte[] {1, 2, 3, 4}, block));
+	}
+
+	private RecordReader reader(byte[] data, int length, int readSize, PartialRecord partialRecord) {
+		return new RecordReader(Channels.newChannel(new ByteArrayInputStream(data)), length, readSize, partialRecord);
+	}
+}
@@ -0,0 +1,98 @@
+package net.sf.cb2java.copybook;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import junit.framework.TestCase;
+
+public class RecordViewTest extends TestCase {
+
+	private RecordView view;
+
+	@Override
+	protected void setUp() throws Exception {
+		Copybook copybook = TestCopybooks.b();
+		view = new RecordView(copybook);
+	}
+
+	public void testAccessors() throws Exception {
+		view.bind(RECORD.getBytes("cp1252"));
+		assertEquals("ABCDEF", view.getString("ROOT.A"));
+		assertEquals(12345, view.getLong("root.c"));
+		assertEquals(1234, view.getLong("ROOT.D"));
+		assertEquals(new BigDecimal("1234"), view.getDecimal("ROOT.D"));
+		assertEquals("FFF", view.getString("ROOT.SUB(2).F"));
+		assertEquals("1234", view.getString("ROOT.D"));
+	}
+
+	public void testRebind() throws Exception {
+		byte[] buffer = ("XX" + RECORD + RECORD.replace("51234", "50042")).getBytes("cp1252");
+		int d = view.indexOf("ROOT.D");
+		assertEquals(1234, view.bind(buffer, 2).getLong(d));
+		assertEquals(42, view.bind(buffer, 2 + RECORD.length()).getLong(d));
+	}
+
+	public void testDirectBuffer() throws Exception {
+		byte[] bytes = ("XX" + RECORD).getBytes("cp1252");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		view.bind(buffer, 2);
+		assertEquals(bytes.length, buffer.position());
+		assertEquals("BCDE", view.getString("ROOT.B"));
+		assertEquals(1234, view.getUnscaled(view.indexOf("ROOT.D")));
+	}
+
+	public void testBlank() throws Exception {
+		RecordView amounts = new RecordView(CopybookParser.parse("T", new StringReader(
+			  "       01  REC.\n"
+			+ "           05  COUNT  PIC 9(4).\n"
+			+ "           05  PRICE  PIC 9(3)V99.\n")));
+		amounts.bind("         ".getBytes("cp1252"));
+		assertEquals(BigDecimal.ZERO, amounts.getDecimal("REC.COUNT"));
+		assertEquals(0, amounts.getLong("REC.COUNT"));
+		assertNull(amounts.getDecimal("REC.PRICE"));
+		assertEquals(0, amounts.getLong("REC.PRICE"));
+		assertEquals(0, amounts.getUnscaled("REC.PRICE"));
+
+		amounts.bind("004212345".getBytes("cp1252"));
+		assertEquals(12345, amounts.getUnscaled("REC.PRICE"));
+		assertEquals(123, amounts.getLong("REC.PRICE"));
+		assertEquals(new BigDecimal("123.45"), amounts.getDecimal("REC.PRICE"));
+	}
+
+	public void testErrors() throws Exception {
+		try {
+			view.getLong("ROOT.D");
+			fail("not bound");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		try {
+			view.getString("ROOT.A");
+			fail("not bound");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		view.bind(RECORD.getBytes("cp1252"));
+		try {
+			view.getLong("ROOT.A");
+			fail("not numeric");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			view.getLong("ROOT.X");
+			fail("no such field");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			view.bind(new byte[10]);
+			fail("too short");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package net.sf.cb2java.copybook;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import net.sf.cb2java.Settings;
+
+/**
+ * The b.copybook fixture shared by the tests.  It describes a record of
+ * 31 bytes: ROOT with A X(6), B XXXX, C S9(5), D 9(4) and SUB OCCURS 2
+ * with E A(3) and F AAA.
+ */
+public final class TestCopybooks {
+
+	/** a record of b.copybook, the same as b.input.txt */
+	public static final String RECORD = "ABCDEFBCDE123451234 E FF EEEFFF";
+
+	private static final String B = "./target/test-classes/b.copybook";
+
+	private TestCopybooks() {
+	}
+
+	/**
+	 * parses b.copybook with the default settings
+	 */
+	public static Copybook b() throws IOException {
+		try (InputStream stream = new FileInputStream(B)) {
+			return CopybookParser.parse("B", stream);
+		}
+	}
+
+	/**
+	 * parses b.copybook with the given settings
+	 */
+	public static Copybook b(Settings settings) throws IOException {
+		try (InputStream stream = new FileInputStream(B)) {
+			return CopybookParser.parse("B", stream, settings);
+		}
+	}
+}
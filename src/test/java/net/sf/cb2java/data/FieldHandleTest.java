@@ -0,0 +1,77 @@
+package net.sf.cb2java.data;
+
+import static net.sf.cb2java.copybook.TestCopybooks.RECORD;
+
+import java.math.BigInteger;
+
+import junit.framework.TestCase;
+import net.sf.cb2java.copybook.Copybook;
+import net.sf.cb2java.copybook.TestCopybooks;
+
+public class FieldHandleTest extends TestCase {
+
+	private Copybook copybook;
+
+	@Override
+	protected void setUp() throws Exception {
+		copybook = TestCopybooks.b();
+	}
+
+	public void testGet() throws Exception {
+		Record record = copybook.parseData(RECORD.getBytes("cp1252"));
+		assertEquals(BigInteger.valueOf(1234), record.get(copybook.compile("ROOT.D")).getValue());
+		assertEquals("FFF", record.get(copybook.compile("root.sub(2).f")).getValue());
+		assertEquals(" E", record.get(copybook.compile("ROOT.SUB(1).E")).getValue());
+		assertSame(((GroupData) record.getChild("ROOT")).getChildren().get(4), 
+			record.get(copybook.compile("ROOT.SUB(1)")));
+	}
+
+	public void testLazyRecord() throws Exception {
+		Record record = copybook.parseLazy(RECORD.getBytes("cp1252"));
+		assertEquals("FFF", record.get(copybook.compile("ROOT.SUB(2).F")).getValue());
+	}
+
+	public void testOffset() {
+		assertEquals(0, copybook.compile("ROOT.A").getOffset());
+		assertEquals(15, copybook.compile("ROOT.D").getOffset());
+		assertEquals(25, copybook.compile("ROOT.SUB(2)").getOffset());
+		assertEquals(28, copybook.compile("ROOT.SUB(2).F").getOffset());
+		assertEquals("F", copybook.compile("ROOT.SUB(2).F").getElement().getName());
+	}
+
+	public void testInvalidPaths() {
+		String[] paths = {"ROOT.X", "ROOT.SUB.E", "ROOT.SUB(3).E", "ROOT.SUB(0).E", "ROOT.A.B", "ROOT..A", "ROOT.D(2)"};
+		for (String path : paths) {
+			try {
+				copybook.compile(path);
+				fail(path);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testSubscriptWithoutOccurs() {
+		try {
+			copybook.compile("ROOT(1).A");
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("ROOT in 'ROOT(1).A'"));
+		}
+		for (int i = 0; i < copybook.getLayout().size(); i++) {
+			assertEquals(copybook.getLayout().getOffset(i), 
+				copybook.compile(copybook.getLayout().getPath(i)).getOffset());
+		}
+	}
+
+	public void testOtherCopybook() throws Exception {
+		Copybook other = TestCopybooks.b();
+		Record record = copybook.parseData(RECORD.getBytes("cp1252"));
+		try {
+			record.get(other.compile("ROOT.D"));
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
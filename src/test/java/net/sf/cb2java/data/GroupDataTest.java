@@ -0,0 +1,47 @@
+package net.sf.cb2java.data;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+import net.sf.cb2java.copybook.Copybook;
+import net.sf.cb2java.copybook.CopybookParser;
+
+public class GroupDataTest extends TestCase {
+
+	private static final String COPYBOOK = 
+		  "       01  REC.\n"
+		+ "           05  FILLER PIC X(2).\n"
+		+ "           05  NAME   PIC X(3).\n"
+		+ "           05  FILLER PIC X(1).\n"
+		+ "           05  CODE   PIC X OCCURS 3.\n";
+
+	private GroupData rec;
+
+	@Override
+	protected void setUp() throws Exception {
+		Copybook copybook = CopybookParser.parse("T", new ByteArrayInputStream(COPYBOOK.getBytes("cp1252")));
+		rec = (GroupData) copybook.parseData("..ABC-XYZ".getBytes("cp1252")).getChild("rec");
+	}
+
+	public void testGetChild() {
+		assertEquals("ABC", rec.getChild("NAME").getValue());
+		assertEquals("ABC", rec.getChild("name").getValue());
+		assertEquals("..", rec.getChild("FILLER").getValue());
+		assertEquals("X", rec.getChild("CODE").getValue());
+		assertNull(rec.getChild("NONE"));
+	}
+
+	public void testGetChildren() {
+		List<Data> fillers = rec.getChildren("filler");
+		assertEquals(2, fillers.size());
+		assertEquals("..", fillers.get(0).getValue());
+		assertEquals("-", fillers.get(1).getValue());
+
+		List<Data> codes = rec.getChildren("CODE");
+		assertEquals(3, codes.size());
+		assertEquals("Z", codes.get(2).getValue());
+
+		assertTrue(rec.getChildren("NONE").isEmpty());
+	}
+}
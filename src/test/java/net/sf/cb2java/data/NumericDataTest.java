@@ -0,0 +1,74 @@
+package net.sf.cb2java.data;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import junit.framework.TestCase;
+import net.sf.cb2java.types.Decimal;
+import net.sf.cb2java.types.Packed;
+import net.sf.cb2java.types.SignPosition;
+
+public class NumericDataTest extends TestCase {
+
+	public void testIntegerDefaults() {
+		IntegerData data = (IntegerData) new Decimal("I", 5, 1, "S9(4)", SignPosition.TRAILING).create();
+		assertTrue(data.isCompact());
+		assertEquals(0, data.getLong());
+		assertSame(BigInteger.ZERO, data.getValue());
+	}
+
+	public void testIntegerLong() {
+		IntegerData data = (IntegerData) new Decimal("I", 5, 1, "S9(4)", SignPosition.TRAILING).create();
+		data.setLong(-1234);
+		assertEquals(-1234, data.getLong());
+		assertEquals(-1234, data.getInt());
+		assertEquals(BigInteger.valueOf(-1234), data.getValue());
+		assertSame(data.getValue(), data.getValue());
+		try {
+			data.setLong(12345);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(-1234, data.getLong());
+	}
+
+	public void testIntegerBeyondLong() {
+		IntegerData data = (IntegerData) new Packed("P", 5, 1, "S9(25)", SignPosition.TRAILING).create();
+		BigInteger big = new BigInteger("1234567890123456789012345");
+		data.setValue(big);
+		assertFalse(data.isCompact());
+		assertEquals(big, data.getBigInteger());
+		data.setLong(42);
+		assertTrue(data.isCompact());
+		assertEquals(BigInteger.valueOf(42), data.getBigInteger());
+	}
+
+	public void testDecimalDefaultIsNull() {
+		DecimalData data = (DecimalData) new Decimal("D", 5, 1, "S9(4)V99", SignPosition.TRAILING).create();
+		assertFalse(data.isCompact());
+		assertNull(data.getValue());
+		assertEquals(0, data.getUnscaledLong());
+		assertEquals(0.0, data.getDouble(), 0.0);
+	}
+
+	public void testDecimalUnscaled() {
+		DecimalData data = (DecimalData) new Decimal("D", 5, 1, "S9(4)V99", SignPosition.TRAILING).create();
+		data.setUnscaledLong(-123456);
+		assertTrue(data.isCompact());
+		assertEquals(-123456, data.getUnscaledLong());
+		assertEquals(-1234.56, data.getDouble(), 0.0);
+		assertEquals(new BigDecimal("-1234.56"), data.getValue());
+
+		data.setValue(new BigDecimal("1.5"), true);
+		assertFalse(data.isCompact());
+		assertEquals(150, data.getUnscaledLong());
+	}
+
+	public void testParsedValuesAreCompact() throws Exception {
+		Decimal decimal = new Decimal("D", 5, 1, "S9(4)V99", SignPosition.TRAILING);
+		DecimalData data = (DecimalData) decimal.parse("23456P".getBytes("cp1252"), 0);
+		assertTrue(data.isCompact());
+		assertEquals(-234567, data.getUnscaledLong());
+		assertEquals(new BigDecimal("-2345.67"), data.getBigDecimal());
+	}
+}
@@ -0,0 +1,74 @@
+package net.sf.cb2java.types;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class BinaryTest extends TestCase {
+
+	public void testDecodeLong() {
+		assertEquals(-2, Binary.decodeLong(bytes(0xFF, 0xFE), 0, 2, true, false));
+		assertEquals(65534, Binary.decodeLong(bytes(0xFF, 0xFE), 0, 2, false, false));
+		assertEquals(-257, Binary.decodeLong(bytes(0xFF, 0xFE), 0, 2, true, true));
+		assertEquals(0x01020304, Binary.decodeLong(bytes(0x00, 0x01, 0x02, 0x03, 0x04), 1, 4, true, false));
+		assertEquals(0x01020304, Binary.decodeLong(bytes(0x04, 0x03, 0x02, 0x01), 0, 4, false, true));
+		assertEquals(-1, Binary.decodeLong(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), 0, 8, true, false));
+		assertEquals(Numeric.UNDECODABLE, 
+			Binary.decodeLong(bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF), 0, 8, false, false));
+	}
+
+	public void testEncodeLong() {
+		byte[] buffer = new byte[6];
+		Binary.encodeLong(-2, buffer, 1, 4, false);
+		assertBytes(bytes(0x00, 0xFF, 0xFF, 0xFF, 0xFE, 0x00), buffer);
+		Binary.encodeLong(0x01020304, buffer, 1, 4, true);
+		assertBytes(bytes(0x00, 0x04, 0x03, 0x02, 0x01, 0x00), buffer);
+	}
+
+	public void testParse() {
+		assertEquals(new BigInteger("-2"), parse("S9(4)", bytes(0xFF, 0xFE)));
+		assertEquals(new BigInteger("1234"), parse("9(4)", bytes(0x04, 0xD2)));
+		assertEquals(new BigDecimal("-12.34"), parse("S9(7)V99", bytes(0xFF, 0xFF, 0xFB, 0x2E)));
+		assertEquals(new BigInteger("-1"), parse("S9(18)", bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF)));
+	}
+
+	public void testParseUnsigned() {
+		// the high bit of an unsigned field is not a sign bit
+		assertEquals(new BigInteger("40000"), parse("9(9)", bytes(0x00, 0x00, 0x9C, 0x40)));
+		try {
+			parse("9(18)", bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF));
+			fail("more than 18 digits");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testToBytes() {
+		assertBytes(bytes(0xFF, 0xFE), toBytes("S9(4)", new BigInteger("-2")));
+		assertBytes(bytes(0x04, 0xD2), toBytes("9(4)", new BigInteger("1234")));
+		assertBytes(bytes(0xFF, 0xFF, 0xFB, 0x2E), toBytes("S9(7)V99", new BigDecimal("-12.34")));
+		assertBytes(bytes(0x00, 0x00, 0x00, 0x00), toBytes("S9(7)V99", null));
+	}
+
+	private Object parse(String pic, byte[] input) {
+		return new Binary("DUMMY", 0, 1, pic).parse(input).getValue();
+	}
+
+	private byte[] toBytes(String pic, Object value) {
+		return new Binary("DUMMY", 0, 1, pic).toBytes(value);
+	}
+
+	private static void assertBytes(byte[] expected, byte[] actual) {
+		assertTrue(Arrays.toString(actual), Arrays.equals(expected, actual));
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
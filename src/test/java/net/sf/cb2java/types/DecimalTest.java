@@ -3,8 +3,10 @@ package net.sf.cb2java.types;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import junit.framework.TestCase;
+import net.sf.cb2java.Settings;
 import net.sf.cb2java.data.Data;
 import net.sf.cb2java.data.DecimalData;
 import net.sf.cb2java.data.IntegerData;
@@ -20,6 +22,72 @@ public class DecimalTest extends TestCase {
 		assertEquals(new BigDecimal("1.23"), parse("S9(6)V99", "0000012C")); // Real example
 	}
 
+	public void testParseAtOffset() throws UnsupportedEncodingException {
+		Decimal decimal = new Decimal("DUMMY", 0, 1, "S9(4)", SignPosition.TRAILING);
+		byte[] buffer = "XX905}234NXX".getBytes("cp1252");
+		assertEquals(new BigInteger("-9050"), decimal.parse(buffer, 2).getValue());
+		assertEquals(new BigInteger("-2345"), decimal.parse(buffer, 6).getValue());
+	}
+
+	public void testParseEbcdic() {
+		Decimal decimal = new Decimal("DUMMY", 0, 1, "S9(4)V99", SignPosition.TRAILING);
+		decimal.setSettings(new Settings.Default() {
+			public String getEncoding() {
+				return "Cp037";
+			}
+		});
+		assertEquals(new BigDecimal("-2345.67"), decimal.parse(bytes(0xF2, 0xF3, 0xF4, 0xF5, 0xF6, 0xD7)).getValue());
+		assertEquals(new BigDecimal("2345.67"), decimal.parse(bytes(0xF2, 0xF3, 0xF4, 0xF5, 0xF6, 0xC7)).getValue());
+		assertEquals(new BigDecimal("2345.67"), decimal.parse(bytes(0xF2, 0xF3, 0xF4, 0xF5, 0xF6, 0xF7)).getValue());
+		assertNull(decimal.parse(bytes(0x40, 0x40, 0x40, 0x40, 0x40, 0x40)).getValue());
+	}
+
+	public void testParseBlanksAndPlainSign() throws UnsupportedEncodingException {
+		assertEquals(new BigInteger("12"), parse("9(4)", "  12"));
+		assertEquals(new BigInteger("-12"), parse("S9(4)", " 1K "));
+		assertEquals(new BigInteger("10"), parse("S9(4)", "0010"));
+		assertEquals(new BigInteger("-10"), parse("S9(4)", " -10"));
+		assertEquals(BigInteger.ZERO, parse("S9(4)", "    "));
+		assertNull(parse("S99V99", "    "));
+	}
+
+	public void testToBytes() throws UnsupportedEncodingException {
+		assertEquals("905}", toBytes("S9(4)", new BigInteger("-9050")));
+		assertEquals("234E", toBytes("S9(4)", new BigInteger("2345")));
+		assertEquals("0012", toBytes("9(4)", new BigInteger("12")));
+		assertEquals("00000012C", toBytes("S9(7)V99", new BigDecimal("1.23")));
+		assertEquals("100000000000000000000}", toBytes("S9(22)", new BigInteger("-1000000000000000000000")));
+		
+		Decimal leading = new Decimal("DUMMY", 0, 1, "S9(4)", SignPosition.LEADING);
+		assertEquals("R050", new String(leading.toBytes(new BigInteger("-9050")), "cp1252"));
+	}
+
+	public void testToBytesEbcdic() {
+		Decimal decimal = new Decimal("DUMMY", 0, 1, "S9(4)V99", SignPosition.TRAILING);
+		decimal.setSettings(new Settings.Default() {
+			public String getEncoding() {
+				return "Cp037";
+			}
+		});
+		byte[] buffer = bytes(0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00);
+		decimal.toBytes(new BigDecimal("-2345.67"), buffer, 1);
+		assertTrue(Arrays.equals(bytes(0x00, 0xF2, 0xF3, 0xF4, 0xF5, 0xF6, 0xD7, 0x00), buffer));
+		assertEquals(new BigDecimal("-2345.67"), decimal.parse(buffer, 1).getValue());
+	}
+
+	private String toBytes(String pic, Object value) throws UnsupportedEncodingException {
+		Decimal decimal = new Decimal("DUMMY", 0, 1, pic, SignPosition.TRAILING);
+		return new String(decimal.toBytes(value), "cp1252");
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+
 	private Object parse(String pic, String string) throws UnsupportedEncodingException {
 		Decimal decimal = new Decimal("DUMMY", 0, 1, pic, SignPosition.TRAILING);
 		Data data = decimal.parse(string.getBytes("cp1252"));
@@ -0,0 +1,104 @@
+package net.sf.cb2java.types;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class PackedTest extends TestCase {
+
+	public void testDecodeLong() {
+		assertEquals(12345, Packed.decodeLong(bytes(0x12, 0x34, 0x5C), 0, 3, true));
+		assertEquals(-12345, Packed.decodeLong(bytes(0x12, 0x34, 0x5D), 0, 3, true));
+		assertEquals(12345, Packed.decodeLong(bytes(0x12, 0x34, 0x5D), 0, 3, false));
+		assertEquals(12345, Packed.decodeLong(bytes(0x12, 0x34, 0x5F), 0, 3, true));
+		assertEquals(7, Packed.decodeLong(bytes(0xFF, 0x7C, 0xFF), 1, 1, true));
+	}
+
+	public void testDecodeLongUndecodable() {
+		assertEquals(Numeric.UNDECODABLE, Packed.decodeLong(bytes(0x1A, 0x34, 0x5C), 0, 3, true));
+		assertEquals(Numeric.UNDECODABLE, Packed.decodeLong(bytes(0x12, 0x34, 0x5B), 0, 3, true));
+		assertEquals(Numeric.UNDECODABLE, Packed.decodeLong(bytes(0x12, 0x34, 0xAC), 0, 3, true));
+		// 19 digits do not always fit, a leading zero nibble makes it 18
+		byte[] nineteen = bytes(0x91, 0x23, 0x45, 0x67, 0x89, 0x01, 0x23, 0x45, 0x67, 0x8C);
+		assertEquals(Numeric.UNDECODABLE, Packed.decodeLong(nineteen, 0, 10, true));
+		nineteen[0] = 0x01;
+		assertEquals(123456789012345678L, Packed.decodeLong(nineteen, 0, 10, true));
+	}
+
+	public void testParse() {
+		assertEquals(new BigInteger("-12345"), parse("S9(5)", bytes(0x12, 0x34, 0x5D)));
+		assertEquals(new BigDecimal("123.45"), parse("S9(3)V99", bytes(0x12, 0x34, 0x5C)));
+		assertEquals(new BigDecimal("-0.05"), parse("S9(3)V99", bytes(0x00, 0x00, 0x5D)));
+		assertEquals(new BigInteger("999999999999999999"), 
+			parse("9(18)", bytes(0x09, 0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x99, 0x9F)));
+	}
+
+	public void testParseFallsBack() {
+		// more than 18 digits and sign nibbles other than C, D and F use BigInteger
+		assertEquals(new BigInteger("-1234567890123456789012"), 
+			parse("S9(22)", bytes(0x01, 0x23, 0x45, 0x67, 0x89, 0x01, 0x23, 0x45, 0x67, 0x89, 0x01, 0x2D)));
+		assertEquals(new BigInteger("12345"), parse("S9(5)", bytes(0x12, 0x34, 0x5A)));
+	}
+
+	public void testParseValidates() {
+		try {
+			parse("9(4)", bytes(0x12, 0x34, 0x5F));
+			fail("five digits in a 9(4)");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testParseAtOffset() {
+		Packed packed = new Packed("DUMMY", 0, 1, "S9(5)", SignPosition.TRAILING);
+		byte[] buffer = bytes(0xFF, 0x12, 0x34, 0x5D, 0x00, 0x00, 0x1C);
+		assertEquals(new BigInteger("-12345"), packed.parse(buffer, 1).getValue());
+		assertEquals(new BigInteger("1"), packed.parse(buffer, 4).getValue());
+	}
+
+	public void testToBytes() {
+		assertBytes(bytes(0x12, 0x34, 0x5C), toBytes("S9(5)", new BigInteger("12345")));
+		assertBytes(bytes(0x12, 0x34, 0x5D), toBytes("S9(5)", new BigInteger("-12345")));
+		assertBytes(bytes(0x00, 0x01, 0x5D), toBytes("S9(5)", new BigInteger("-15")));
+		assertBytes(bytes(0x12, 0x34, 0x5F), toBytes("9(5)", new BigInteger("12345")));
+		assertBytes(bytes(0x01, 0x23, 0x4C), toBytes("S9(3)V99", new BigDecimal("12.34")));
+		assertBytes(bytes(0x00, 0x00, 0x0C), toBytes("S9(3)V99", null));
+		assertBytes(bytes(0x01, 0x23, 0x45, 0x67, 0x89, 0x01, 0x23, 0x45, 0x67, 0x89, 0x01, 0x2D), 
+			toBytes("S9(22)", new BigInteger("-1234567890123456789012")));
+	}
+
+	public void testToBytesAtOffset() {
+		Packed packed = new Packed("DUMMY", 0, 1, "S9(5)", SignPosition.TRAILING);
+		byte[] buffer = bytes(0xFF, 0xFF, 0xFF, 0xFF, 0xFF);
+		packed.toBytes(new BigInteger("-12345"), buffer, 1);
+		assertBytes(bytes(0xFF, 0x12, 0x34, 0x5D, 0xFF), buffer);
+	}
+
+	public void testRoundTrip() {
+		Packed packed = new Packed("DUMMY", 0, 1, "S9(15)V99", SignPosition.TRAILING);
+		BigDecimal value = new BigDecimal("-123456789012345.67");
+		assertEquals(value, packed.parse(packed.toBytes(value)).getValue());
+	}
+
+	private byte[] toBytes(String pic, Object value) {
+		return new Packed("DUMMY", 0, 1, pic, SignPosition.TRAILING).toBytes(value);
+	}
+
+	private static void assertBytes(byte[] expected, byte[] actual) {
+		assertTrue(Arrays.toString(actual), Arrays.equals(expected, actual));
+	}
+
+	private Object parse(String pic, byte[] input) {
+		return new Packed("DUMMY", 0, 1, pic, SignPosition.TRAILING).parse(input).getValue();
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,89 @@
+package net.sf.cb2java.types;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import net.sf.cb2java.Settings;
+
+public class SignedSeparateTest extends TestCase {
+
+	public void testParse() throws UnsupportedEncodingException {
+		assertEquals(new BigInteger("-123"), parse("S9(4)", SignPosition.LEADING, "-123"));
+		assertEquals(new BigInteger("123"), parse("S9(4)", SignPosition.LEADING, "+123"));
+		assertEquals(new BigInteger("-123"), parse("S9(4)", SignPosition.TRAILING, "123-"));
+		assertEquals(new BigDecimal("1.23"), parse("S9(2)V99", SignPosition.TRAILING, "123+"));
+	}
+
+	public void testParseWithoutSign() throws UnsupportedEncodingException {
+		try {
+			parse("S9(4)", SignPosition.TRAILING, "1234");
+			fail("no sign");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("no sign was found"));
+		}
+	}
+
+	public void testToBytes() throws UnsupportedEncodingException {
+		assertEquals("-012", toBytes("S9(4)", SignPosition.LEADING, new BigInteger("-12")));
+		assertEquals("012+", toBytes("S9(4)", SignPosition.TRAILING, new BigInteger("12")));
+		assertEquals("000+", toBytes("S9(4)", SignPosition.TRAILING, BigInteger.ZERO));
+		assertEquals("000+", toBytes("S9(4)", SignPosition.TRAILING, null));
+	}
+
+	public void testZeroIsPositive() throws UnsupportedEncodingException {
+		/* zero used to be written with '-' */
+		assertEquals("+000", toBytes("S9(4)", SignPosition.LEADING, BigInteger.ZERO));
+		assertEquals("+000", toBytes("S9(4)", SignPosition.LEADING, null));
+		assertEquals("000+", toBytes("S9(2)V99", SignPosition.TRAILING, new BigDecimal("0.00")));
+		assertEquals("+000", toBytes("S9(2)V99", SignPosition.LEADING, new BigDecimal("-0.00")));
+		assertEquals(BigInteger.ZERO, parse("S9(4)", SignPosition.LEADING, "+000"));
+	}
+
+	public void testNegativeHasOneSign() throws UnsupportedEncodingException {
+		/* negative numbers used to get a second '-' among the digits, e.g. -0-5 */
+		assertEquals("-005", toBytes("S9(4)", SignPosition.LEADING, new BigInteger("-5")));
+		assertEquals("005-", toBytes("S9(4)", SignPosition.TRAILING, new BigInteger("-5")));
+		assertEquals("-999", toBytes("S9(4)", SignPosition.LEADING, new BigInteger("-999")));
+		assertEquals("125-", toBytes("S9(2)V99", SignPosition.TRAILING, new BigDecimal("-1.25")));
+		assertEquals(new BigInteger("-5"), parse("S9(4)", SignPosition.TRAILING, "005-"));
+		assertEquals(new BigDecimal("-1.25"), parse("S9(2)V99", SignPosition.TRAILING, "125-"));
+	}
+
+	public void testMultiByteEncoding() throws UnsupportedEncodingException {
+		/* UTF-8 has no code page tables and goes through the String encoder */
+		SignedSeparate element = new SignedSeparate("DUMMY", 0, 1, "S9(4)", SignPosition.LEADING);
+		element.setSettings(new Settings.Default() {
+			public String getEncoding() {
+				return "UTF-8";
+			}
+		});
+		assertEquals("-005", new String(element.toBytes(new BigInteger("-5")), "UTF-8"));
+		assertEquals("+000", new String(element.toBytes(BigInteger.ZERO), "UTF-8"));
+		assertEquals("+012", new String(element.toBytes(new BigInteger("12")), "UTF-8"));
+	}
+
+	public void testEbcdic() {
+		SignedSeparate element = new SignedSeparate("DUMMY", 0, 1, "S9(4)", SignPosition.LEADING);
+		element.setSettings(new Settings.Default() {
+			public String getEncoding() {
+				return "Cp037";
+			}
+		});
+		byte[] buffer = new byte[6];
+		element.toBytes(new BigInteger("-123"), buffer, 1);
+		assertTrue(Arrays.toString(buffer), 
+			Arrays.equals(new byte[] {0, 0x60, (byte) 0xF1, (byte) 0xF2, (byte) 0xF3, 0}, buffer));
+		assertEquals(new BigInteger("-123"), element.parse(buffer, 1).getValue());
+	}
+
+	private Object parse(String pic, SignPosition position, String input) throws UnsupportedEncodingException {
+		return new SignedSeparate("DUMMY", 0, 1, pic, position).parse(input.getBytes("cp1252")).getValue();
+	}
+
+	private String toBytes(String pic, SignPosition position, Object value) throws UnsupportedEncodingException {
+		return new String(new SignedSeparate("DUMMY", 0, 1, pic, position).toBytes(value), "cp1252");
+	}
+}